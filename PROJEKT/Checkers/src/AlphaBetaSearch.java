@@ -0,0 +1,606 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Przeszukiwanie negamax z cięciami alfa-beta i iteracyjnym pogłębianiem.
+ * Każda kolejna iteracja zaczyna od najlepszego ruchu poprzedniej, a
+ * przeszukiwanie kończy się po upływie limitu czasu. Wynik przerwanej
+ * iteracji jest używany tylko wtedy, gdy znalazła ruch lepszy od
+ * dotychczasowego. Opcjonalna {@link TranspositionTable} pozwala pominąć
+ * pozycje osiągnięte inną kolejnością ruchów i podpowiada ruch do zbadania
+ * jako pierwszy, a {@link MoveOrdering} ustala kolejność pozostałych ruchów.
+ * Opcjonalna {@link EndgameDatabase} daje dokładną ocenę wygranej lub
+ * przegranej pozycji z małą liczbą bierek bez dalszego przeszukiwania.
+ * <p>
+ * W trybie przeszukiwania bić (domyślnie włączonym) liście, w których
+ * strona na posunięciu musi bić, nie są oceniane statycznie: bicia są
+ * rozgrywane aż do pozycji spokojnej. Niezależnie od niego można włączyć
+ * (domyślnie włączone) przedłużanie ruchów wymuszonych: ruch jedyny
+ * dozwolony nie zmniejsza pozostałej głębokości.
+ */
+public class AlphaBetaSearch implements MoveStrategy {
+
+    private static final Logger logger = new Logger(AlphaBetaSearch.class);
+
+    public static final int MAX_PLY = 64;
+
+    // Ocena wygranej; wygrana w mniejszej liczbie półruchów ma wyższą ocenę
+    public static final int WIN_SCORE = 1_000_000;
+
+    // Oceny o module co najmniej tej granicy oznaczają wygraną lub przegraną w znanej liczbie półruchów;
+    // mieści się w nich odległość z bazy końcówek powiększona o odległość węzła od korzenia
+    public static final int DECISIVE_SCORE = WIN_SCORE - MAX_PLY - (1 << EndgameDatabase.MAX_ENTRY_BITS);
+    private static final int INFINITY = WIN_SCORE + 1;
+
+    // Czas jest sprawdzany co 1024 węzły
+    private static final int TIME_CHECK_MASK = 1023;
+
+    // Przy grze na czas zmiana najlepszego ruchu lub spadek oceny o więcej niż
+    // 0.30 piona wydłuża czas docelowy dwukrotnie
+    private static final int UNSTABLE_SCORE_DROP = 30;
+    private static final int UNSTABLE_TIME_FACTOR = 2;
+
+    private final long timeBudgetMillis;
+    private final TranspositionTable table;
+    private EndgameDatabase endgames;
+    private final int[][] moveBuffers = new int[MAX_PLY][Move.MAX_MOVES];
+    private final MoveOrdering ordering = new MoveOrdering();
+    private boolean orderingEnabled = true;
+    private boolean quiescenceEnabled = true;
+    private boolean extensionEnabled = true;
+    private int maxDepth = MAX_PLY - 1;
+
+    private GameLogic game;
+    private long deadline;
+    private boolean stopped;
+    private volatile boolean stopRequested;
+    private volatile SearchListener listener;
+
+    private long nodes;
+    private long endgameHits;
+    private int completedDepth;
+    private int bestScore;
+    private volatile SearchStatistics lastStatistics;
+
+    // Odcięcia beta oraz te z nich, które dał pierwszy zbadany ruch
+    private long cutoffs;
+    private long firstMoveCutoffs;
+
+    public AlphaBetaSearch(long timeBudgetMillis) {
+        this(timeBudgetMillis, null);
+    }
+
+    /**
+     * @param timeBudgetMillis Limit czasu na jeden ruch w milisekundach
+     * @param table            Tablica transpozycji współdzielona między
+     *                         kolejnymi ruchami lub null
+     */
+    public AlphaBetaSearch(long timeBudgetMillis, TranspositionTable table) {
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.table = table;
+    }
+
+    @Override
+    public int selectMove(GameLogic game) {
+        return run(game, System.nanoTime() + timeBudgetMillis * 1_000_000L, Long.MAX_VALUE);
+    }
+
+    /**
+     * Kolejna iteracja nie jest rozpoczynana po upływie połowy czasu
+     * docelowego, bo zwykle trwałaby dłużej niż wszystkie poprzednie. Jeśli
+     * ostatnia iteracja zmieniła najlepszy ruch lub obniżyła ocenę, czas
+     * docelowy jest wydłużany.
+     */
+    @Override
+    public int selectMove(GameLogic game, long targetMillis, long maxMillis) {
+        return run(game, System.nanoTime() + maxMillis * 1_000_000L, targetMillis * 1_000_000L);
+    }
+
+    /**
+     * Przeszukuje pozycję aż do wywołania {@link #stop()}.
+     */
+    @Override
+    public int ponder(GameLogic game) {
+        return run(game, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Zwraca najlepszy ruch zapisany dla pozycji w tablicy transpozycji.
+     * Po wyborze ruchu jest to zwykle najlepsza odpowiedź przeciwnika
+     * znaleziona w trakcie przeszukiwania.
+     */
+    @Override
+    public int predictMove(GameLogic game) {
+        if (table == null || game.isContinuedCapture()) {
+            return Move.NONE;
+        }
+        int move = TranspositionTable.move(table.probe(game.getHash()));
+        return move != Move.NONE && game.isLegalMove(move) ? move : Move.NONE;
+    }
+
+    private int run(GameLogic game, long deadline, long targetNanos) {
+        lastStatistics = null;
+        if (table != null) {
+            table.newSearch();
+        }
+
+        long start = System.nanoTime();
+        int bestMove = search(game, deadline, targetNanos, 1);
+        if (bestMove == Move.NONE) {
+            return Move.NONE;
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        lastStatistics = new SearchStatistics("Alfa-beta", bestMove, completedDepth, bestScore, nodes, 0,
+                elapsedNanos, 1, table == null ? 0 : table.getProbes(), table == null ? 0 : table.getHits(),
+                endgameHits);
+
+        long elapsedMillis = elapsedNanos / 1_000_000L;
+        logger.info("Wybrany ruch: " + Move.toString(bestMove) + ", głębokość: " + completedDepth + ", węzły: " + nodes
+                + ", ocena: " + bestScore + ", czas: " + elapsedMillis + " ms");
+        if (endgames != null) {
+            logger.debug("Odczyty bazy końcówek: " + endgameHits);
+        }
+        logger.debug(String.format("Odcięcia: %d, pierwszym ruchem: %.1f%%", cutoffs,
+                getFirstMoveCutoffRate() * 100));
+        if (table != null) {
+            logger.debug("Tablica transpozycji: odczyty " + table.getProbes() + ", trafienia " + table.getHits()
+                    + ", kolizje " + table.getCollisions() + ", zapisy " + table.getStores() + ", zastąpienia "
+                    + table.getOverwrites() + ", zapełnienie " + table.getFillPermille() + "‰");
+        }
+        return bestMove;
+    }
+
+    /**
+     * Przeszukuje pozycję z iteracyjnym pogłębianiem aż do podanego terminu.
+     * Nie rozpoczyna nowego przeszukiwania w tablicy transpozycji, więc kilka
+     * wątków może jednocześnie przeszukiwać tę samą pozycję ze wspólną
+     * tablicą, każdy na własnej kopii gry.
+     *
+     * @param deadline   Termin zakończenia według {@link System#nanoTime()}
+     * @param startDepth Głębokość pierwszej iteracji
+     * @return Najlepszy znaleziony ruch lub {@link Move#NONE}, gdy nie ma ruchów
+     */
+    public int search(GameLogic game, long deadline, int startDepth) {
+        return search(game, deadline, Long.MAX_VALUE, startDepth);
+    }
+
+    /**
+     * Przeszukuje pozycję jak {@link #search(GameLogic, long, int)}, ale nie
+     * rozpoczyna kolejnej iteracji po upływie połowy czasu docelowego,
+     * wydłużanego w pozycji niestabilnej.
+     *
+     * @param targetNanos Czas docelowy lub {@link Long#MAX_VALUE}, żeby
+     *                    przeszukiwać aż do terminu
+     */
+    public int search(GameLogic game, long deadline, long targetNanos, int startDepth) {
+        long start = System.nanoTime();
+        int[] rootMoves = moveBuffers[0];
+        int count = prepare(game, deadline, rootMoves);
+        if (count == 0) {
+            return Move.NONE;
+        }
+
+        int bestMove = rootMoves[0];
+        if (count == 1) {
+            return bestMove;
+        }
+
+        long budgetNanos = targetNanos;
+        int previousScore = 0;
+        for (int depth = startDepth; depth <= maxDepth; depth++) {
+            int alpha = -INFINITY;
+            int iterationBest = Move.NONE;
+            int previousBest = bestMove;
+
+            for (int i = 0; i < count; i++) {
+                int move = rootMoves[i];
+                game.makeMove(move);
+                int score = -negamax(depth - 1, 1, -INFINITY, -alpha);
+                game.unmakeMove();
+
+                if (stopped) {
+                    break;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    iterationBest = move;
+                }
+            }
+
+            if (iterationBest != Move.NONE) {
+                bestMove = iterationBest;
+                moveToFront(rootMoves, count, bestMove);
+            }
+            if (stopped) {
+                break;
+            }
+
+            completedDepth = depth;
+            bestScore = alpha;
+            SearchListener listener = this.listener;
+            if (listener != null) {
+                listener.onIterationCompleted(depth, alpha, nodes, bestMove);
+            }
+            if (Math.abs(alpha) >= DECISIVE_SCORE) {
+                break;
+            }
+
+            if (targetNanos != Long.MAX_VALUE) {
+                boolean unstable = depth > startDepth
+                        && (bestMove != previousBest || alpha < previousScore - UNSTABLE_SCORE_DROP);
+                if (unstable) {
+                    budgetNanos = Math.max(budgetNanos, targetNanos * UNSTABLE_TIME_FACTOR);
+                }
+                if ((System.nanoTime() - start) * 2 >= budgetNanos) {
+                    break;
+                }
+            }
+            previousScore = alpha;
+        }
+        return bestMove;
+    }
+
+    /**
+     * Analizuje pozycję z iteracyjnym pogłębianiem aż do wywołania
+     * {@link #stop()}, wyznaczając dokładne oceny podanej liczby najlepszych
+     * ruchów. Ruch spoza najlepszych jest przeszukiwany z dolną granicą
+     * równą ocenie ostatniego z nich, więc kosztuje tyle co w zwykłym
+     * przeszukiwaniu. Warianty główne są odczytywane z tablicy transpozycji.
+     * Analiza kończy się wcześniej, gdy najlepszy ruch prowadzi do
+     * rozstrzygnięcia albo osiągnięto największą głębokość.
+     *
+     * @param lineCount Liczba analizowanych ruchów
+     * @param listener  Odbiorca wyników każdej zakończonej iteracji
+     */
+    public void analyse(GameLogic game, int lineCount, AnalysisListener listener) {
+        if (table != null) {
+            table.newSearch();
+        }
+        int[] rootMoves = moveBuffers[0];
+        int count = prepare(game, Long.MAX_VALUE, rootMoves);
+        if (count == 0) {
+            return;
+        }
+
+        int lines = Math.min(lineCount, count);
+        int[] scores = new int[count];
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            for (int i = 0; i < count; i++) {
+                // Ruch, który nie pobije ostatniego z najlepszych, wystarczy ograniczyć z góry
+                int alpha = i >= lines ? scores[lines - 1] : -INFINITY;
+                int move = rootMoves[i];
+                game.makeMove(move);
+                int score = -negamax(depth - 1, 1, -INFINITY, -alpha);
+                game.unmakeMove();
+                if (stopped) {
+                    return;
+                }
+
+                // Wstawienie ruchu na miejsce według oceny
+                int j = i;
+                for (; j > 0 && scores[j - 1] < score; j--) {
+                    rootMoves[j] = rootMoves[j - 1];
+                    scores[j] = scores[j - 1];
+                }
+                rootMoves[j] = move;
+                scores[j] = score;
+            }
+
+            completedDepth = depth;
+            bestScore = scores[0];
+            List<AnalysisLine> result = new ArrayList<>(lines);
+            for (int i = 0; i < lines; i++) {
+                result.add(new AnalysisLine(rootMoves[i], scores[i], principalVariation(rootMoves[i], depth)));
+            }
+            listener.onAnalysis(depth, result);
+            if (Math.abs(scores[0]) >= DECISIVE_SCORE) {
+                return;
+            }
+        }
+    }
+
+    // Przygotowuje przeszukiwanie i generuje uporządkowane ruchy korzenia; zwraca ich liczbę
+    private int prepare(GameLogic game, long deadline, int[] rootMoves) {
+        this.game = game;
+        this.deadline = deadline;
+        stopped = false;
+        nodes = 0;
+        endgameHits = 0;
+        completedDepth = 0;
+        bestScore = 0;
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+
+        int count = game.generateFullMoves(rootMoves);
+        if (count > 0 && orderingEnabled) {
+            ordering.newSearch();
+            ordering.order(rootMoves, count, 0, Move.NONE);
+        }
+        return count;
+    }
+
+    // Wariant zaczynający się od ruchu korzenia, odczytany z ruchów zapisanych w tablicy transpozycji
+    private int[] principalVariation(int firstMove, int maxLength) {
+        int[] variation = new int[maxLength];
+        int length = 0;
+        variation[length++] = firstMove;
+        game.makeMove(firstMove);
+        while (table != null && length < maxLength && game.getRepetitionCount() == 0) {
+            long entry = table.probe(game.getHash());
+            int move = entry == 0 ? Move.NONE : TranspositionTable.move(entry);
+            if (move == Move.NONE || !game.isLegalMove(move)) {
+                break;
+            }
+            variation[length++] = move;
+            game.makeMove(move);
+        }
+        for (int i = 0; i < length; i++) {
+            game.unmakeMove();
+        }
+        return Arrays.copyOf(variation, length);
+    }
+
+    /**
+     * Przerywa trwające przeszukiwanie. Metoda może być wywołana z innego
+     * wątku; {@link #selectMove} zwróci wtedy najlepszy znaleziony dotąd ruch.
+     */
+    @Override
+    public void stop() {
+        stopRequested = true;
+    }
+
+    @Override
+    public void clearStop() {
+        stopRequested = false;
+    }
+
+    @Override
+    public void setSearchListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return Głębokość ostatniej w pełni zakończonej iteracji
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    @Override
+    public SearchStatistics getLastStatistics() {
+        return lastStatistics;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Ustawia bazę końcówek używaną w węzłach z niewielką liczbą bierek.
+     *
+     * @param endgames Baza końcówek lub null, żeby z niej nie korzystać
+     */
+    public void setEndgameDatabase(EndgameDatabase endgames) {
+        this.endgames = endgames;
+    }
+
+    /**
+     * @return Liczba węzłów ostatniego przeszukiwania ocenionych przez bazę końcówek
+     */
+    public long getEndgameHits() {
+        return endgameHits;
+    }
+
+    /**
+     * Włącza lub wyłącza porządkowanie ruchów. Bez niego ruchy są badane w
+     * kolejności generatora, z wyjątkiem ruchu z tablicy transpozycji.
+     */
+    public void setMoveOrdering(boolean enabled) {
+        orderingEnabled = enabled;
+    }
+
+    /**
+     * Włącza lub wyłącza rozgrywanie bić w liściach.
+     */
+    public void setQuiescence(boolean enabled) {
+        quiescenceEnabled = enabled;
+    }
+
+    /**
+     * Włącza lub wyłącza niezliczanie ruchów wymuszonych do głębokości.
+     */
+    public void setForcedMoveExtension(boolean enabled) {
+        extensionEnabled = enabled;
+    }
+
+    /**
+     * Ogranicza głębokość iteracyjnego pogłębiania, np. do porównań liczby
+     * węzłów przy stałej głębokości.
+     */
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = Math.max(1, Math.min(maxDepth, MAX_PLY - 1));
+    }
+
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    public long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+
+    /**
+     * @return Odsetek odcięć spowodowanych przez pierwszy zbadany ruch (0-1)
+     */
+    public double getFirstMoveCutoffRate() {
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+    /**
+     * @return Ocena ostatniej zakończonej iteracji z punktu widzenia strony na
+     * posunięciu
+     */
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        if (checkStop()) {
+            return 0;
+        }
+
+        if (game.getRepetitionCount() > 0) {
+            return 0;
+        }
+
+        if (endgames != null && !game.isContinuedCapture()) {
+            int white = game.getPieces(true);
+            int black = game.getPieces(false);
+            if (endgames.contains(white, black)) {
+                endgameHits++;
+                int distance = endgames.distance(white, black, game.getKings(), game.isWhiteTurn());
+                if (distance < 0) {
+                    return 0;
+                }
+                // Baza podaje odległość do końca gry, więc ocena jest taka sama jak przy przeszukaniu do końca
+                return (distance & 1) != 0 ? WIN_SCORE - ply - distance : -WIN_SCORE + ply + distance;
+            }
+        }
+
+        long hash = game.getHash();
+        int hashMove = Move.NONE;
+        if (table != null && depth > 0) {
+            long entry = table.probe(hash);
+            if (entry != 0) {
+                hashMove = TranspositionTable.move(entry);
+                if (TranspositionTable.depth(entry) >= depth) {
+                    int score = TranspositionTable.score(entry, ply);
+                    int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.EXACT
+                            || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                            || (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                        return score;
+                    }
+                }
+            }
+        }
+
+        int[] moves = moveBuffers[ply];
+        int count = game.generateFullMoves(moves);
+        if (count == 0) {
+            return -WIN_SCORE + ply;
+        }
+        if (depth <= 0 || ply >= MAX_PLY - 1) {
+            return quiescenceEnabled ? quiescence(ply, alpha, beta, moves, count) : evaluate();
+        }
+        if (orderingEnabled) {
+            ordering.order(moves, count, ply, hashMove);
+        } else if (hashMove != Move.NONE) {
+            moveToFront(moves, count, hashMove);
+        }
+
+        // Jedyny dozwolony ruch nie jest liczony do głębokości
+        int childDepth = extensionEnabled && count == 1 ? depth : depth - 1;
+        int originalAlpha = alpha;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            game.makeMove(moves[i]);
+            int score = -negamax(childDepth, ply + 1, -beta, -alpha);
+            game.unmakeMove();
+
+            if (score > alpha) {
+                alpha = score;
+                bestMove = moves[i];
+                if (alpha >= beta) {
+                    cutoffs++;
+                    if (i == 0) {
+                        firstMoveCutoffs++;
+                    }
+                    if (orderingEnabled && !stopped) {
+                        ordering.recordCutoff(bestMove, ply, depth);
+                    }
+                    break;
+                }
+            }
+        }
+
+        if (table != null && !stopped) {
+            int bound = alpha >= beta ? TranspositionTable.LOWER_BOUND
+                    : alpha > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND;
+            table.store(hash, bestMove, alpha, depth, bound, ply);
+        }
+        return alpha;
+    }
+
+    /**
+     * Rozgrywa bicia do pozycji spokojnej. Bicie jest obowiązkowe, więc
+     * strona, która musi bić, nie może poprzestać na ocenie statycznej;
+     * w pozycji bez bić zwracana jest ocena statyczna.
+     *
+     * @param moves Wygenerowane ruchy pozycji
+     * @param count Liczba ruchów, większa od zera
+     */
+    private int quiescence(int ply, int alpha, int beta, int[] moves, int count) {
+        if (!Move.isCapture(moves[0]) || ply >= MAX_PLY - 1) {
+            return evaluate();
+        }
+        if (orderingEnabled) {
+            ordering.order(moves, count, ply, Move.NONE);
+        }
+
+        for (int i = 0; i < count; i++) {
+            game.makeMove(moves[i]);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            game.unmakeMove();
+
+            if (score > alpha) {
+                alpha = score;
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+        }
+        return alpha;
+    }
+
+    private int quiescence(int ply, int alpha, int beta) {
+        if (checkStop()) {
+            return 0;
+        }
+        int[] moves = moveBuffers[ply];
+        int count = game.generateFullMoves(moves);
+        if (count == 0) {
+            return -WIN_SCORE + ply;
+        }
+        return quiescence(ply, alpha, beta, moves, count);
+    }
+
+    // Liczy węzeł i co TIME_CHECK_MASK + 1 węzłów sprawdza, czy przeszukiwanie ma się zakończyć
+    private boolean checkStop() {
+        if ((++nodes & TIME_CHECK_MASK) == 0 && (stopRequested || System.nanoTime() >= deadline)) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    // Ocena statyczna z punktu widzenia strony na posunięciu, aktualizowana przyrostowo przez grę
+    private int evaluate() {
+        return game.getScore();
+    }
+
+    private static void moveToFront(int[] moves, int count, int move) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Jeden z najlepszych ruchów znalezionych przez analizę: ruch, jego ocena z
+ * punktu widzenia strony na posunięciu i wariant główny zaczynający się od
+ * tego ruchu.
+ */
+public final class AnalysisLine {
+
+    private final int move;
+    private final int score;
+    private final int[] variation;
+
+    public AnalysisLine(int move, int score, int[] variation) {
+        this.move = move;
+        this.score = score;
+        this.variation = variation;
+    }
+
+    public int getMove() {
+        return move;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return Kopia wariantu głównego; pierwszy ruch to {@link #getMove()}
+     */
+    public int[] getVariation() {
+        return variation.clone();
+    }
+
+    /**
+     * Zwraca ocenę w pionkach, np. "+1.25", albo liczbę półruchów do
+     * wygranej ("W12") lub przegranej ("P12").
+     */
+    public String formatScore() {
+        if (Math.abs(score) >= AlphaBetaSearch.DECISIVE_SCORE) {
+            return (score > 0 ? "W" : "P") + (AlphaBetaSearch.WIN_SCORE - Math.abs(score));
+        }
+        return String.format("%+.2f", score / 100.0);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(formatScore());
+        for (int hop : variation) {
+            builder.append(' ').append(Move.toString(hop));
+        }
+        return builder.toString();
+    }
+}
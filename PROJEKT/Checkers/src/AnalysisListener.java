@@ -0,0 +1,15 @@
+import java.util.List;
+
+/**
+ * Odbiorca wyników analizy pozycji.
+ */
+public interface AnalysisListener {
+
+    /**
+     * Wywoływana po każdej zakończonej iteracji analizy.
+     *
+     * @param depth Głębokość zakończonej iteracji
+     * @param lines Najlepsze ruchy od najlepszego, z ocenami i wariantami
+     */
+    void onAnalysis(int depth, List<AnalysisLine> lines);
+}
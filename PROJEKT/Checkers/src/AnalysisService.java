@@ -0,0 +1,102 @@
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.swing.SwingUtilities;
+
+/**
+ * Ciągła analiza bieżącej pozycji w tle. Analiza działa w osobnym wątku na
+ * kopii gry i trwa, dopóki pozycja się nie zmieni; wyniki kolejnych iteracji
+ * trafiają do odbiorcy w wątku Swing. Tablica transpozycji analizy nie jest
+ * czyszczona między pozycjami, więc po ruchu analiza zaczyna od wyników
+ * zebranych dla poprzedniej pozycji.
+ * <p>
+ * Wszystkie metody poza konstruktorem wywołuje się w wątku Swing.
+ */
+public class AnalysisService {
+
+    private static final Logger logger = new Logger(AnalysisService.class);
+
+    private final AlphaBetaSearch search;
+    private final int lineCount;
+    private final GameLogic analysisGame = new GameLogic();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Analiza");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private Future<?> analysis;
+
+    // Numer bieżącej analizy; wyniki z innym numerem dotyczą poprzedniej pozycji
+    private int analysisId;
+    private AnalysisListener listener;
+
+    /**
+     * @param lineCount Liczba najlepszych ruchów podawanych przez analizę
+     * @param table     Tablica transpozycji używana tylko przez analizę
+     */
+    public AnalysisService(int lineCount, TranspositionTable table) {
+        this.lineCount = lineCount;
+        this.search = new AlphaBetaSearch(0, table);
+    }
+
+    public void setListener(AnalysisListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Ustawia bazę końcówek używaną przez analizę.
+     *
+     * @param endgames Baza końcówek lub null, żeby z niej nie korzystać
+     */
+    public void setEndgameDatabase(EndgameDatabase endgames) {
+        search.setEndgameDatabase(endgames);
+    }
+
+    /**
+     * Zaczyna analizę pozycji gry, najpierw zatrzymując analizę poprzedniej
+     * pozycji. Należy ją wywołać po każdej zmianie pozycji.
+     */
+    public void analyse(GameLogic game) {
+        stop();
+        if (game.isGameOver()) {
+            return;
+        }
+
+        analysisGame.copyFrom(game);
+        int id = analysisId;
+        search.clearStop();
+        analysis = executor.submit(() -> search.analyse(analysisGame, lineCount,
+                (depth, lines) -> SwingUtilities.invokeLater(() -> {
+                    if (id == analysisId && listener != null) {
+                        listener.onAnalysis(depth, lines);
+                    }
+                })));
+    }
+
+    /**
+     * Zatrzymuje analizę i czeka, aż wątek analizy skończy pracę.
+     */
+    public void stop() {
+        analysisId++;
+        if (analysis == null) {
+            return;
+        }
+
+        search.stop();
+        try {
+            analysis.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Przerwano oczekiwanie na zatrzymanie analizy", e);
+        } catch (ExecutionException e) {
+            logger.error("Błąd w wątku analizy", e);
+        }
+        analysis = null;
+    }
+
+    public boolean isRunning() {
+        return analysis != null && !analysis.isDone();
+    }
+}
@@ -0,0 +1,579 @@
+/**
+ * Pozycja warcabowa zapisana jako maski bitowe 32 ciemnych pól planszy.
+ * Pole o indeksie {@code square} odpowiada bitowi {@code 1 << square}. Pola są
+ * numerowane wierszami od lewego górnego rogu: 0-3 to wiersz 0, 28-31 to
+ * wiersz 7. Białe poruszają się w górę planszy, czarne w dół.
+ */
+public final class Bitboard {
+
+    public static final int SQUARES = 32;
+
+    // Kierunki ruchu po przekątnych
+    public static final int UP_LEFT = 0;
+    public static final int UP_RIGHT = 1;
+    public static final int DOWN_LEFT = 2;
+    public static final int DOWN_RIGHT = 3;
+
+    // Maski wierszy i krawędzi planszy
+    public static final int TOP_ROW = 0x0000000F;
+    public static final int BOTTOM_ROW = 0xF0000000;
+    private static final int EVEN_ROWS = 0x0F0F0F0F;
+    private static final int ODD_ROWS = 0xF0F0F0F0;
+    private static final int LEFT_EDGE = 0x10101010;
+    private static final int RIGHT_EDGE = 0x08080808;
+
+    // Sąsiednie pole w danym kierunku, indeksowane [kierunek * 32 + pole], -1 poza planszą
+    private static final int[] NEIGHBOR = new int[4 * SQUARES];
+
+    // Maska pól przekątnej od pola w danym kierunku (bez samego pola), indeksowana [kierunek * 32 + pole]
+    private static final int[] RAY = new int[4 * SQUARES];
+
+    // Maska pola lądowania po biciu pionkiem w danym kierunku, 0 poza planszą
+    private static final int[] JUMP = new int[4 * SQUARES];
+
+    // Maska obu przekątnych przechodzących przez pole (bez samego pola)
+    private static final int[] DIAGONALS = new int[SQUARES];
+
+    static {
+        for (int square = 0; square < SQUARES; square++) {
+            int row = row(square);
+            int col = col(square);
+            NEIGHBOR[UP_LEFT * SQUARES + square] = square(row - 1, col - 1);
+            NEIGHBOR[UP_RIGHT * SQUARES + square] = square(row - 1, col + 1);
+            NEIGHBOR[DOWN_LEFT * SQUARES + square] = square(row + 1, col - 1);
+            NEIGHBOR[DOWN_RIGHT * SQUARES + square] = square(row + 1, col + 1);
+        }
+
+        for (int square = 0; square < SQUARES; square++) {
+            for (int direction = UP_LEFT; direction <= DOWN_RIGHT; direction++) {
+                int index = direction * SQUARES + square;
+                for (int current = neighbor(square, direction); current >= 0; current = neighbor(current, direction)) {
+                    RAY[index] |= 1 << current;
+                }
+                int next = neighbor(square, direction);
+                int landing = next < 0 ? -1 : neighbor(next, direction);
+                JUMP[index] = landing < 0 ? 0 : 1 << landing;
+                DIAGONALS[square] |= RAY[index];
+            }
+        }
+    }
+
+    private int white;
+    private int black;
+    private int kings;
+
+    public Bitboard() {
+    }
+
+    public Bitboard(int white, int black, int kings) {
+        set(white, black, kings);
+    }
+
+    /**
+     * Zwraca indeks pola dla współrzędnych planszy.
+     *
+     * @return Indeks 0-31 lub -1 dla pola jasnego albo spoza planszy
+     */
+    public static int square(int row, int col) {
+        if (row < 0 || row >= GameConstants.BOARD_SIZE || col < 0 || col >= GameConstants.BOARD_SIZE
+                || (row + col) % 2 == 0) {
+            return -1;
+        }
+        return row * 4 + col / 2;
+    }
+
+    public static int row(int square) {
+        return square >>> 2;
+    }
+
+    public static int col(int square) {
+        return ((square & 3) << 1) | (~square >>> 2 & 1);
+    }
+
+    public static int neighbor(int square, int direction) {
+        return NEIGHBOR[direction * SQUARES + square];
+    }
+
+    public static int diagonals(int square) {
+        return DIAGONALS[square];
+    }
+
+    public static int ray(int square, int direction) {
+        return RAY[direction * SQUARES + square];
+    }
+
+    public static int jump(int square, int direction) {
+        return JUMP[direction * SQUARES + square];
+    }
+
+    /**
+     * Zwraca pierwsze zajęte pole na przekątnej od pola w danym kierunku. Pola
+     * w kierunku w górę mają malejące indeksy, a w dół rosnące, więc
+     * najbliższa bierka to odpowiednio najstarszy lub najmłodszy bit.
+     *
+     * @return Indeks pola lub -1, jeśli przekątna jest wolna do krawędzi
+     */
+    public static int firstOccupied(int square, int direction, int occupied) {
+        int blockers = RAY[direction * SQUARES + square] & occupied;
+        if (blockers == 0) {
+            return -1;
+        }
+        return direction >= DOWN_LEFT ? Integer.numberOfTrailingZeros(blockers)
+                : 31 - Integer.numberOfLeadingZeros(blockers);
+    }
+
+    /**
+     * Zwraca maskę wolnych pól na przekątnej od pola w danym kierunku aż do
+     * pierwszej bierki.
+     */
+    public static int slide(int square, int direction, int occupied) {
+        int ray = RAY[direction * SQUARES + square];
+        int blocker = firstOccupied(square, direction, occupied);
+        if (blocker < 0) {
+            return ray;
+        }
+        return ray & ~RAY[direction * SQUARES + blocker] & ~(1 << blocker);
+    }
+
+    public static int opposite(int direction) {
+        return 3 - direction;
+    }
+
+    /**
+     * Przesuwa wszystkie bity maski o jedno pole w podanym kierunku. Bity,
+     * które wypadłyby poza planszę, są odrzucane.
+     */
+    public static int shift(int mask, int direction) {
+        switch (direction) {
+            case UP_LEFT:
+                return ((mask & EVEN_ROWS) >>> 4) | ((mask & ODD_ROWS & ~LEFT_EDGE) >>> 5);
+            case UP_RIGHT:
+                return ((mask & EVEN_ROWS & ~RIGHT_EDGE) >>> 3) | ((mask & ODD_ROWS) >>> 4);
+            case DOWN_LEFT:
+                return ((mask & EVEN_ROWS) << 4) | ((mask & ODD_ROWS & ~LEFT_EDGE) << 3);
+            default:
+                return ((mask & EVEN_ROWS & ~RIGHT_EDGE) << 5) | ((mask & ODD_ROWS) << 4);
+        }
+    }
+
+    /**
+     * Zwraca maskę wiersza promocji dla danego koloru.
+     */
+    public static int promotionRow(boolean isWhite) {
+        return isWhite ? TOP_ROW : BOTTOM_ROW;
+    }
+
+    public void set(int white, int black, int kings) {
+        this.white = white;
+        this.black = black;
+        this.kings = kings & (white | black);
+    }
+
+    public void clear() {
+        white = 0;
+        black = 0;
+        kings = 0;
+    }
+
+    public int getWhite() {
+        return white;
+    }
+
+    public int getBlack() {
+        return black;
+    }
+
+    public int getKings() {
+        return kings;
+    }
+
+    public int getPieces(boolean isWhite) {
+        return isWhite ? white : black;
+    }
+
+    public int getOccupied() {
+        return white | black;
+    }
+
+    public int getEmpty() {
+        return ~(white | black);
+    }
+
+    public boolean isOccupied(int square) {
+        return ((white | black) & (1 << square)) != 0;
+    }
+
+    public boolean isWhite(int square) {
+        return (white & (1 << square)) != 0;
+    }
+
+    public boolean isKing(int square) {
+        return (kings & (1 << square)) != 0;
+    }
+
+    public void put(int square, boolean isWhite, boolean isKing) {
+        int bit = 1 << square;
+        remove(square);
+        if (isWhite) {
+            white |= bit;
+        } else {
+            black |= bit;
+        }
+        if (isKing) {
+            kings |= bit;
+        }
+    }
+
+    public void remove(int square) {
+        int bit = ~(1 << square);
+        white &= bit;
+        black &= bit;
+        kings &= bit;
+    }
+
+    public void removeAll(int mask) {
+        white &= ~mask;
+        black &= ~mask;
+        kings &= ~mask;
+    }
+
+    /**
+     * Stawia bierki danego koloru na wszystkich polach maski.
+     *
+     * @param kingMask Pola maski, na których stoją damki
+     */
+    public void place(int mask, boolean isWhite, int kingMask) {
+        removeAll(mask);
+        if (isWhite) {
+            white |= mask;
+        } else {
+            black |= mask;
+        }
+        kings |= kingMask & mask;
+    }
+
+    public void promote(int square) {
+        kings |= (1 << square) & (white | black);
+    }
+
+    /**
+     * Zwraca maskę bierek danego koloru, które mogą wykonać bicie.
+     */
+    public int getCaptureSources(boolean isWhite) {
+        return getMenCaptureSources(isWhite) | getKingCaptureSources(getPieces(isWhite) & kings);
+    }
+
+    /**
+     * Zwraca maskę pionków (bez damek) danego koloru, które mogą wykonać bicie.
+     */
+    public int getMenCaptureSources(boolean isWhite) {
+        int men = getPieces(isWhite) & ~kings;
+        int opponents = getPieces(!isWhite);
+        int empty = getEmpty();
+
+        int sources = 0;
+        for (int direction = UP_LEFT; direction <= DOWN_RIGHT; direction++) {
+            int back = opposite(direction);
+            sources |= shift(shift(empty, back) & opponents, back) & men;
+        }
+        return sources;
+    }
+
+    /**
+     * Sprawdza damki z podanej maski i zwraca te, które mogą wykonać bicie.
+     */
+    public int getKingCaptureSources(int candidates) {
+        int sources = 0;
+        for (int remaining = candidates & kings; remaining != 0; remaining &= remaining - 1) {
+            int square = Integer.numberOfTrailingZeros(remaining);
+            if (getCaptureTargets(square) != 0) {
+                sources |= 1 << square;
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * Zwraca maskę bierek danego koloru, które mają przynajmniej jeden ruch bez
+     * bicia.
+     */
+    public int getQuietSources(boolean isWhite) {
+        int own = getPieces(isWhite);
+        int empty = getEmpty();
+        int men = own & ~kings;
+        int ownKings = own & kings;
+
+        int sources = 0;
+        if (isWhite) {
+            sources |= (shift(empty, DOWN_RIGHT) | shift(empty, DOWN_LEFT)) & men;
+        } else {
+            sources |= (shift(empty, UP_RIGHT) | shift(empty, UP_LEFT)) & men;
+        }
+        for (int direction = UP_LEFT; direction <= DOWN_RIGHT; direction++) {
+            sources |= shift(empty, opposite(direction)) & ownKings;
+        }
+        return sources;
+    }
+
+    /**
+     * Zwraca maskę pól, na których może wylądować bierka z danego pola po
+     * pojedynczym biciu.
+     */
+    public int getCaptureTargets(int square) {
+        int bit = 1 << square;
+        if (((white | black) & bit) == 0) {
+            return 0;
+        }
+
+        int opponents = (white & bit) != 0 ? black : white;
+        int empty = getEmpty();
+        int targets = 0;
+
+        if ((kings & bit) == 0) {
+            for (int direction = UP_LEFT; direction <= DOWN_RIGHT; direction++) {
+                targets |= shift(shift(bit, direction) & opponents, direction) & empty;
+            }
+            return targets;
+        }
+
+        int occupied = ~empty;
+        for (int direction = UP_LEFT; direction <= DOWN_RIGHT; direction++) {
+            int captured = firstOccupied(square, direction, occupied);
+            if (captured >= 0 && (opponents & (1 << captured)) != 0) {
+                targets |= slide(captured, direction, occupied);
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Zwraca maskę pól, na które bierka z danego pola może przejść bez bicia.
+     */
+    public int getQuietTargets(int square) {
+        int bit = 1 << square;
+        if (((white | black) & bit) == 0) {
+            return 0;
+        }
+
+        int empty = getEmpty();
+        if ((kings & bit) == 0) {
+            if ((white & bit) != 0) {
+                return (shift(bit, UP_LEFT) | shift(bit, UP_RIGHT)) & empty;
+            }
+            return (shift(bit, DOWN_LEFT) | shift(bit, DOWN_RIGHT)) & empty;
+        }
+
+        int targets = 0;
+        for (int direction = UP_LEFT; direction <= DOWN_RIGHT; direction++) {
+            targets |= slide(square, direction, ~empty);
+        }
+        return targets;
+    }
+
+    /**
+     * Zapisuje do bufora wszystkie pojedyncze bicia bierek danego koloru.
+     *
+     * @return Nowa liczba ruchów w buforze
+     */
+    public int generateCaptures(boolean isWhite, int[] moves, int count) {
+        int own = getPieces(isWhite);
+        int opponents = getPieces(!isWhite);
+        int men = own & ~kings;
+        int empty = getEmpty();
+        int promotion = promotionRow(isWhite);
+
+        for (int direction = UP_LEFT; direction <= DOWN_RIGHT; direction++) {
+            int back = opposite(direction);
+            int landings = shift(shift(men, direction) & opponents, direction) & empty;
+            for (; landings != 0; landings &= landings - 1) {
+                int to = Integer.numberOfTrailingZeros(landings);
+                int captured = neighbor(to, back);
+                moves[count++] = Move.of(neighbor(captured, back), to, 1 << captured, (promotion & (1 << to)) != 0);
+            }
+        }
+
+        for (int ownKings = own & kings; ownKings != 0; ownKings &= ownKings - 1) {
+            count = generateKingCaptures(Integer.numberOfTrailingZeros(ownKings), opponents, moves, count);
+        }
+        return count;
+    }
+
+    /**
+     * Zapisuje do bufora pojedyncze bicia bierki z danego pola.
+     *
+     * @return Nowa liczba ruchów w buforze
+     */
+    public int generateCaptures(int square, int[] moves, int count) {
+        int bit = 1 << square;
+        if (((white | black) & bit) == 0) {
+            return count;
+        }
+
+        boolean isWhite = (white & bit) != 0;
+        int opponents = getPieces(!isWhite);
+        if ((kings & bit) != 0) {
+            return generateKingCaptures(square, opponents, moves, count);
+        }
+
+        int empty = getEmpty();
+        int promotion = promotionRow(isWhite);
+        for (int direction = UP_LEFT; direction <= DOWN_RIGHT; direction++) {
+            int captured = neighbor(square, direction);
+            int landing = JUMP[direction * SQUARES + square] & empty;
+            if (landing != 0 && (opponents & (1 << captured)) != 0) {
+                moves[count++] = Move.of(square, Integer.numberOfTrailingZeros(landing), 1 << captured,
+                        (promotion & landing) != 0);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Zapisuje do bufora wszystkie ruchy bez bicia bierek danego koloru.
+     *
+     * @return Nowa liczba ruchów w buforze
+     */
+    public int generateQuietMoves(boolean isWhite, int[] moves, int count) {
+        int own = getPieces(isWhite);
+        int men = own & ~kings;
+        int empty = getEmpty();
+        int promotion = promotionRow(isWhite);
+        int first = isWhite ? UP_LEFT : DOWN_LEFT;
+
+        for (int direction = first; direction <= first + 1; direction++) {
+            int back = opposite(direction);
+            for (int targets = shift(men, direction) & empty; targets != 0; targets &= targets - 1) {
+                int to = Integer.numberOfTrailingZeros(targets);
+                moves[count++] = Move.of(neighbor(to, back), to, 0, (promotion & (1 << to)) != 0);
+            }
+        }
+
+        for (int ownKings = own & kings; ownKings != 0; ownKings &= ownKings - 1) {
+            int square = Integer.numberOfTrailingZeros(ownKings);
+            for (int direction = UP_LEFT; direction <= DOWN_RIGHT; direction++) {
+                for (int targets = slide(square, direction, ~empty); targets != 0; targets &= targets - 1) {
+                    moves[count++] = Move.of(square, Integer.numberOfTrailingZeros(targets), 0, false);
+                }
+            }
+        }
+        return count;
+    }
+
+    private int generateKingCaptures(int square, int opponents, int[] moves, int count) {
+        int occupied = white | black;
+        for (int direction = UP_LEFT; direction <= DOWN_RIGHT; direction++) {
+            int captured = firstOccupied(square, direction, occupied);
+            if (captured < 0 || (opponents & (1 << captured)) == 0) {
+                continue;
+            }
+            for (int targets = slide(captured, direction, occupied); targets != 0; targets &= targets - 1) {
+                moves[count++] = Move.of(square, Integer.numberOfTrailingZeros(targets), 1 << captured, false);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Zapisuje do bufora pełne sekwencje bić bierki z danego pola. Każda
+     * sekwencja jest jednym ruchem z maską wszystkich zbitych bierek. Zbite
+     * bierki znikają od razu, a pionek, który w trakcie bicia dotrze do
+     * ostatniego wiersza, bije dalej jako damka. Sekwencje prowadzące do tej
+     * samej pozycji są zapisywane tylko raz.
+     *
+     * @return Nowa liczba ruchów w buforze
+     */
+    public int generateCapturePaths(int square, int[] moves, int count) {
+        int bit = 1 << square;
+        if (((white | black) & bit) == 0) {
+            return count;
+        }
+
+        boolean isWhite = (white & bit) != 0;
+        return extendPath(square, square, isWhite, (kings & bit) != 0, getPieces(!isWhite), getEmpty() | bit, 0,
+                false, moves, count, count);
+    }
+
+    /**
+     * Rozkłada ruch na kolejne pojedyncze skoki, np. do animacji lub wysłania
+     * przez sieć krok po kroku.
+     *
+     * @return Liczba skoków zapisanych w buforze lub 0, jeśli ruch nie pasuje do
+     * pozycji
+     */
+    public int expandPath(int move, int[] hops) {
+        int from = Move.from(move);
+        int bit = 1 << from;
+        if (((white | black) & bit) == 0) {
+            return 0;
+        }
+
+        if (!Move.isCapture(move)) {
+            hops[0] = move;
+            return 1;
+        }
+
+        return findPath(from, Move.to(move), Move.captured(move), (white & bit) != 0, (kings & bit) != 0,
+                getEmpty() | bit, hops, 0);
+    }
+
+    private int extendPath(int from, int square, boolean isWhite, boolean isKing, int opponents, int empty,
+            int captured, boolean promoted, int[] moves, int start, int count) {
+        boolean extended = false;
+
+        for (int direction = UP_LEFT; direction <= DOWN_RIGHT; direction++) {
+            int jumped = isKing ? firstOccupied(square, direction, ~empty) : neighbor(square, direction);
+            if (jumped < 0 || (opponents & (1 << jumped)) == 0) {
+                continue;
+            }
+
+            int landings = isKing ? slide(jumped, direction, ~empty) : JUMP[direction * SQUARES + square] & empty;
+            for (; landings != 0; landings &= landings - 1) {
+                int landing = Integer.numberOfTrailingZeros(landings);
+                boolean promotes = !isKing && (promotionRow(isWhite) & (1 << landing)) != 0;
+                extended = true;
+                count = extendPath(from, landing, isWhite, isKing || promotes, opponents & ~(1 << jumped),
+                        empty | (1 << jumped), captured | (1 << jumped), promoted || promotes, moves, start, count);
+            }
+        }
+
+        if (extended || captured == 0) {
+            return count;
+        }
+
+        int move = Move.of(from, square, captured, promoted);
+        for (int i = start; i < count; i++) {
+            if (moves[i] == move) {
+                return count;
+            }
+        }
+        moves[count++] = move;
+        return count;
+    }
+
+    private int findPath(int square, int target, int remaining, boolean isWhite, boolean isKing, int empty,
+            int[] hops, int depth) {
+        if (remaining == 0) {
+            return square == target ? depth : 0;
+        }
+
+        for (int direction = UP_LEFT; direction <= DOWN_RIGHT; direction++) {
+            int jumped = isKing ? firstOccupied(square, direction, ~empty) : neighbor(square, direction);
+            if (jumped < 0 || (remaining & (1 << jumped)) == 0) {
+                continue;
+            }
+
+            int landings = isKing ? slide(jumped, direction, ~empty) : JUMP[direction * SQUARES + square] & empty;
+            for (; landings != 0; landings &= landings - 1) {
+                int landing = Integer.numberOfTrailingZeros(landings);
+                boolean promotes = !isKing && (promotionRow(isWhite) & (1 << landing)) != 0;
+                hops[depth] = Move.of(square, landing, 1 << jumped, promotes);
+                int length = findPath(landing, target, remaining & ~(1 << jumped), isWhite, isKing || promotes,
+                        empty | (1 << jumped), hops, depth + 1);
+                if (length > 0) {
+                    return length;
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -14,6 +14,7 @@ public class BoardRenderer {
     private boolean boardFlipped;
     private Piece selectedPiece;
     private List<Point> possibleMoves;
+    private List<AnalysisLine> analysisLines;
 
     public BoardRenderer(GameLogic gameLogic) {
         this.gameLogic = gameLogic;
@@ -37,6 +38,14 @@ public class BoardRenderer {
         this.possibleMoves = moves;
     }
 
+    /**
+     * Ustawia najlepsze ruchy z analizy pokazywane jako strzałki lub null,
+     * żeby ich nie pokazywać.
+     */
+    public void setAnalysisLines(List<AnalysisLine> lines) {
+        this.analysisLines = lines;
+    }
+
     public void drawBoard(Graphics g, int offset) {
         for (int row = 0; row < GameConstants.BOARD_SIZE; row++) {
             for (int col = 0; col < GameConstants.BOARD_SIZE; col++) {
@@ -147,6 +156,59 @@ public class BoardRenderer {
         }
     }
 
+    /**
+     * Rysuje strzałki od pola początkowego do końcowego najlepszych ruchów z
+     * analizy, z oceną przy polu końcowym. Lepsze ruchy mają grubsze i mniej
+     * przezroczyste strzałki.
+     */
+    public void highlightAnalysis(Graphics g, int offset) {
+        if (analysisLines == null) {
+            return;
+        }
+
+        Graphics2D g2d = (Graphics2D) g;
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setFont(GameConstants.ANALYSIS_FONT);
+        Color color = GameConstants.ANALYSIS_ARROW_COLOR;
+
+        // Najsłabszy ruch rysowany jest najpierw, żeby strzałka najlepszego była na wierzchu
+        for (int rank = analysisLines.size() - 1; rank >= 0; rank--) {
+            AnalysisLine line = analysisLines.get(rank);
+            int alpha = Math.max(60, 220 - rank * 60);
+            g2d.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), alpha));
+            g2d.setStroke(new BasicStroke(Math.max(2, 6 - rank * 2), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+
+            int fromX = squareCenterX(Move.from(line.getMove()), offset);
+            int fromY = squareCenterY(Move.from(line.getMove()), offset);
+            int toX = squareCenterX(Move.to(line.getMove()), offset);
+            int toY = squareCenterY(Move.to(line.getMove()), offset);
+            g2d.drawLine(fromX, fromY, toX, toY);
+
+            double angle = Math.atan2(toY - fromY, toX - fromX);
+            int head = GameConstants.SQUARE_SIZE / 5;
+            for (double side : new double[] { -Math.PI / 6, Math.PI / 6 }) {
+                g2d.drawLine(toX, toY, (int) (toX - head * Math.cos(angle + side)),
+                        (int) (toY - head * Math.sin(angle + side)));
+            }
+
+            String score = line.formatScore();
+            FontMetrics fm = g2d.getFontMetrics();
+            g2d.drawString(score, toX - fm.stringWidth(score) / 2, toY + GameConstants.SQUARE_SIZE / 2 - 4);
+        }
+    }
+
+    private int squareCenterX(int square, int offset) {
+        int col = Bitboard.col(square);
+        int drawCol = boardFlipped ? (GameConstants.BOARD_SIZE - 1 - col) : col;
+        return offset + drawCol * GameConstants.SQUARE_SIZE + GameConstants.SQUARE_SIZE / 2;
+    }
+
+    private int squareCenterY(int square, int offset) {
+        int row = Bitboard.row(square);
+        int drawRow = boardFlipped ? (GameConstants.BOARD_SIZE - 1 - row) : row;
+        return offset + drawRow * GameConstants.SQUARE_SIZE + GameConstants.SQUARE_SIZE / 2;
+    }
+
     public Point getBoardCoordinates(int x, int y, int offset) {
         x -= offset;
         y -= offset;
@@ -1,5 +1,6 @@
 import java.awt.*;
 import java.awt.event.*;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import javax.swing.*;
@@ -9,6 +10,7 @@ public class CheckersPanel extends JPanel implements ComputerPlayer.ComputerMove
     private final GameLogic gameLogic;
     private final BoardRenderer boardRenderer;
     private final ComputerPlayer computerPlayer;
+    private final AnalysisService analysisService;
     private final CheckersFrame parentFrame;
 
     private Piece selectedPiece = null;
@@ -16,15 +18,19 @@ public class CheckersPanel extends JPanel implements ComputerPlayer.ComputerMove
 
     private final JLabel statusLabel;
     private final JLabel timerLabel;
+    private final JLabel analysisLabel;
     private final JPanel boardPanel;
     private final JButton startButton;
     private final JButton newGameButton;
+    private final JButton analysisButton;
 
     private long whiteTime = 0;
     private long blackTime = 0;
     private long turnStartTime;
     private final Timer timer;
     private boolean timerStarted = false;
+    private final TimeManager computerTimeManager;
+    private int computerMovesPlayed;
 
     private long serverWhiteTime = 0;
     private long serverBlackTime = 0;
@@ -32,6 +38,7 @@ public class CheckersPanel extends JPanel implements ComputerPlayer.ComputerMove
     private String serverCurrentTurn = "WHITE";
 
     private boolean playingWithComputer = false;
+    private boolean analysisEnabled = false;
 
     private enum GameMode {
         SINGLE_PLAYER, TWO_PLAYERS, ONLINE
@@ -47,9 +54,20 @@ public class CheckersPanel extends JPanel implements ComputerPlayer.ComputerMove
         setBackground(GameConstants.BACKGROUND_COLOR);
 
         gameLogic = new GameLogic();
+        gameLogic.setEvaluation(Evaluation.load(Path.of(GameConstants.AI_EVALUATION_FILE)));
         boardRenderer = new BoardRenderer(gameLogic);
-        computerPlayer = new ComputerPlayer(gameLogic);
+        EndgameDatabase endgames = EndgameDatabase.open(Path.of(GameConstants.AI_ENDGAME_DATABASE_FILE));
+        computerPlayer = new ComputerPlayer(gameLogic, createStrategy(endgames));
+        computerPlayer.setOpeningBook(OpeningBook.open(Path.of(GameConstants.AI_OPENING_BOOK_FILE)));
+        computerPlayer.setPondering(GameConstants.AI_PONDERING, GameConstants.AI_SEARCH_TIME);
+        computerTimeManager = GameConstants.AI_CLOCK_TIME > 0 ? new TimeManager(GameConstants.AI_CLOCK_TIME,
+                GameConstants.AI_CLOCK_INCREMENT, GameConstants.AI_MOVE_OVERHEAD) : null;
+        computerPlayer.setTimeManager(computerTimeManager);
         computerPlayer.setMoveListener(this);
+        analysisService = new AnalysisService(GameConstants.AI_ANALYSIS_LINES,
+                new TranspositionTable(GameConstants.AI_ANALYSIS_HASH_SIZE_MB));
+        analysisService.setEndgameDatabase(endgames);
+        analysisService.setListener(this::showAnalysis);
 
         boardPanel = new JPanel() {
             @Override
@@ -59,6 +77,7 @@ public class CheckersPanel extends JPanel implements ComputerPlayer.ComputerMove
                 boardRenderer.drawPieces(g, GameConstants.BOARD_OFFSET);
                 boardRenderer.highlightPossibleMoves(g, GameConstants.BOARD_OFFSET);
                 boardRenderer.highlightPiecesCanCapture(g, GameConstants.BOARD_OFFSET);
+                boardRenderer.highlightAnalysis(g, GameConstants.BOARD_OFFSET);
             }
         };
 
@@ -78,8 +97,13 @@ public class CheckersPanel extends JPanel implements ComputerPlayer.ComputerMove
         timerLabel.setFont(GameConstants.TIMER_FONT);
         timerLabel.setForeground(GameConstants.SECONDARY_TEXT_COLOR);
 
+        analysisLabel = new JLabel(" ");
+        analysisLabel.setFont(GameConstants.ANALYSIS_FONT);
+        analysisLabel.setForeground(GameConstants.SECONDARY_TEXT_COLOR);
+
         statusPanel.add(statusLabel, BorderLayout.WEST);
         statusPanel.add(timerLabel, BorderLayout.EAST);
+        statusPanel.add(analysisLabel, BorderLayout.SOUTH);
 
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
         buttonPanel.setBackground(GameConstants.BACKGROUND_COLOR);
@@ -87,6 +111,7 @@ public class CheckersPanel extends JPanel implements ComputerPlayer.ComputerMove
         JButton flipBoardButton = createStyledButton(GameConstants.FLIP_BOARD_BUTTON_TEXT);
         newGameButton = createStyledButton(GameConstants.NEW_GAME_BUTTON_TEXT);
         startButton = createStyledButton(GameConstants.START_BUTTON_TEXT);
+        analysisButton = createStyledButton(GameConstants.ANALYSIS_BUTTON_TEXT);
 
         flipBoardButton.addActionListener(_ -> {
             boardRenderer.setBoardFlipped(!boardRenderer.isBoardFlipped());
@@ -117,7 +142,10 @@ public class CheckersPanel extends JPanel implements ComputerPlayer.ComputerMove
             }
         });
 
+        analysisButton.addActionListener(_ -> setAnalysisEnabled(!analysisEnabled));
+
         buttonPanel.add(flipBoardButton);
+        buttonPanel.add(analysisButton);
         buttonPanel.add(newGameButton);
         buttonPanel.add(startButton);
 
@@ -136,6 +164,21 @@ public class CheckersPanel extends JPanel implements ComputerPlayer.ComputerMove
         showGameModeDialog();
     }
 
+    // Silnik komputera: MCTS bez funkcji oceny albo przeszukiwanie alfa-beta z bazą końcówek
+    private static MoveStrategy createStrategy(EndgameDatabase endgames) {
+        if (GameConstants.AI_MCTS) {
+            return new MctsSearch(GameConstants.AI_SEARCH_TIME, GameConstants.AI_SEARCH_THREADS,
+                    GameConstants.AI_MCTS_TREE_SIZE_MB);
+        }
+
+        ParallelSearch search = new ParallelSearch(GameConstants.AI_SEARCH_TIME, GameConstants.AI_SEARCH_THREADS,
+                new TranspositionTable(GameConstants.AI_HASH_SIZE_MB));
+        search.setEndgameDatabase(endgames);
+        search.setQuiescence(GameConstants.AI_QUIESCENCE);
+        search.setForcedMoveExtension(GameConstants.AI_FORCED_MOVE_EXTENSION);
+        return search;
+    }
+
     private void setupMouseListeners() {
         boardPanel.addMouseListener(new MouseAdapter() {
             @Override
@@ -168,7 +211,7 @@ public class CheckersPanel extends JPanel implements ComputerPlayer.ComputerMove
             startButton.setText(GameConstants.PAUSE_BUTTON_TEXT);
 
             if (playingWithComputer && !gameLogic.isWhiteTurn()) {
-                computerPlayer.makeMove(GameConstants.AI_MOVE_DELAY);
+                startComputerMove();
             }
         } else {
             timerStarted = false;
@@ -400,13 +443,18 @@ public class CheckersPanel extends JPanel implements ComputerPlayer.ComputerMove
             }
 
             if (!gameLogic.isContinuedCapture()) {
+                if (playingWithComputer && gameLogic.isWhiteTurn()) {
+                    computerMovesPlayed++;
+                }
                 selectedPiece = null;
                 possibleMoves.clear();
                 boardRenderer.setSelectedPiece(null);
                 boardRenderer.setPossibleMoves(null);
 
                 if (playingWithComputer && !gameLogic.isWhiteTurn() && !gameLogic.isGameOver()) {
-                    computerPlayer.makeMove(GameConstants.AI_MOVE_DELAY);
+                    startComputerMove();
+                } else if (playingWithComputer && !gameLogic.isGameOver()) {
+                    computerPlayer.startPondering();
                 }
             } else {
                 selectedPiece = gameLogic.getCapturingPiece();
@@ -421,13 +469,14 @@ public class CheckersPanel extends JPanel implements ComputerPlayer.ComputerMove
 
             updateStatusLabel();
             updateTimer();
+            updateAnalysis();
 
             if (gameLogic.isGameOver()) {
                 Timer endGameTimer = new Timer(500, _ -> handleGameOver());
                 endGameTimer.setRepeats(false);
                 endGameTimer.start();
             } else if (playingWithComputer && !gameLogic.isWhiteTurn() && timerStarted) {
-                computerPlayer.makeMove(GameConstants.AI_MOVE_DELAY);
+                startComputerMove();
             }
         }
 
@@ -546,11 +595,14 @@ public class CheckersPanel extends JPanel implements ComputerPlayer.ComputerMove
     }
 
     public void updateButtonsForOnlineGame() {
+        setAnalysisEnabled(false);
+        analysisButton.setEnabled(false);
         startButton.setEnabled(false);
         newGameButton.setText(GameConstants.SURRENDER_BUTTON_TEXT);
     }
 
     public void resetButtonsFromOnlineGame() {
+        analysisButton.setEnabled(true);
         startButton.setEnabled(true);
         newGameButton.setText(GameConstants.NEW_GAME_BUTTON_TEXT);
     }
@@ -614,6 +666,60 @@ public class CheckersPanel extends JPanel implements ComputerPlayer.ComputerMove
         visualTimer.start();
     }
 
+    @Override
+    public void onThinkingStarted() {
+        statusLabel.setText("Runda: Czarne - komputer myśli...");
+        statusLabel.setForeground(Color.BLACK);
+    }
+
+    @Override
+    public void onThinkingProgress(int depth, int score, long nodes) {
+        statusLabel.setText("Runda: Czarne - komputer myśli... (głębokość " + depth + ")");
+    }
+
+    @Override
+    public void onThinkingFinished() {
+        updateStatusLabel();
+    }
+
+    private void setAnalysisEnabled(boolean enabled) {
+        analysisEnabled = enabled;
+        analysisButton.setText(enabled ? GameConstants.ANALYSIS_STOP_BUTTON_TEXT : GameConstants.ANALYSIS_BUTTON_TEXT);
+        updateAnalysis();
+        repaint();
+    }
+
+    // Analiza działa w grze lokalnej, gdy na posunięciu jest człowiek, i zaczyna się od nowa po każdym ruchu
+    private void updateAnalysis() {
+        boardRenderer.setAnalysisLines(null);
+        analysisLabel.setText(" ");
+        boolean computerTurn = playingWithComputer && !gameLogic.isWhiteTurn();
+        if (!analysisEnabled || parentFrame.isOnlineGame() || computerTurn || gameLogic.isGameOver()) {
+            analysisService.stop();
+            return;
+        }
+        analysisService.analyse(gameLogic);
+    }
+
+    private void showAnalysis(int depth, List<AnalysisLine> lines) {
+        boardRenderer.setAnalysisLines(lines);
+
+        StringBuilder text = new StringBuilder("<html>Analiza, głębokość " + depth + ":");
+        for (int i = 0; i < lines.size(); i++) {
+            AnalysisLine line = lines.get(i);
+            text.append("<br>").append(i + 1).append(". ").append(line.formatScore());
+            int[] variation = line.getVariation();
+            for (int j = 0; j < variation.length && j < GameConstants.ANALYSIS_VARIATION_LENGTH; j++) {
+                text.append(' ').append(Move.toString(variation[j]));
+            }
+            if (variation.length > GameConstants.ANALYSIS_VARIATION_LENGTH) {
+                text.append(" ...");
+            }
+        }
+        analysisLabel.setText(text.append("</html>").toString());
+        repaint();
+    }
+
     private void calculatePossibleMoves() {
         possibleMoves = gameLogic.calculatePossibleMoves(selectedPiece);
         boardRenderer.setSelectedPiece(selectedPiece);
@@ -697,6 +803,22 @@ public class CheckersPanel extends JPanel implements ComputerPlayer.ComputerMove
         timerLabel.setText("Czas: Białe " + whiteTimeStr + " | Czarne " + blackTimeStr);
     }
 
+    private void startComputerMove() {
+        if (computerTimeManager != null) {
+            computerPlayer.setClock(getComputerRemainingMillis());
+        }
+        computerPlayer.makeMove(GameConstants.AI_MOVE_DELAY);
+    }
+
+    // Zegar komputera (czarnych) odlicza czas na partię z przyrostem za każdy wykonany ruch
+    private long getComputerRemainingMillis() {
+        long usedMillis = blackTime;
+        if (timerStarted && !gameLogic.isWhiteTurn()) {
+            usedMillis += System.currentTimeMillis() - turnStartTime;
+        }
+        return computerTimeManager.getRemainingMillis(usedMillis, computerMovesPlayed);
+    }
+
     private void handleGameOver() {
         timerStarted = false;
         timer.stop();
@@ -722,6 +844,7 @@ public class CheckersPanel extends JPanel implements ComputerPlayer.ComputerMove
     }
 
     public void resetGame() {
+        computerPlayer.stopTimer();
         gameLogic.resetGame();
         selectedPiece = null;
         possibleMoves.clear();
@@ -729,6 +852,7 @@ public class CheckersPanel extends JPanel implements ComputerPlayer.ComputerMove
         boardRenderer.setPossibleMoves(null);
         whiteTime = 0;
         blackTime = 0;
+        computerMovesPlayed = 0;
         timerStarted = false;
         timer.stop();
 
@@ -745,6 +869,7 @@ public class CheckersPanel extends JPanel implements ComputerPlayer.ComputerMove
 
         updateStatusLabel();
         updateTimer();
+        updateAnalysis();
         repaint();
     }
 
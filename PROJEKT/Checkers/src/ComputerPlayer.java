@@ -1,20 +1,117 @@
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 
 public class ComputerPlayer {
 
+    private static final Logger logger = new Logger(ComputerPlayer.class);
+
     private final GameLogic gameLogic;
-    private final Random random = new Random();
+    private MoveStrategy strategy;
+    private OpeningBook openingBook;
+
+    // Silnik myśli w osobnym wątku na kopii gry; do wątku Swing wraca tylko wybrany ruch
+    private final GameLogic searchGame = new GameLogic();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Silnik");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Future<?> thinking;
+    private volatile SearchStatistics lastStatistics;
+
+    // Numer bieżącego namysłu; wyniki z innym numerem pochodzą z anulowanego namysłu
+    private int searchId;
+
+    // Gra na czas; clockDeadline to moment według System.nanoTime(), w którym skończyłby się czas na zegarze
+    private TimeManager timeManager;
+    private long clockDeadline;
+    private final int[] forcedMoves = new int[Move.MAX_MOVES];
+
+    // Namysł w czasie ruchu przeciwnika nad pozycją po przewidywanej odpowiedzi
+    private boolean ponderingEnabled;
+    private long ponderMoveTimeMillis;
+    private boolean pondering;
+    private long ponderHash;
+    private int ponderResult = Move.NONE;
+    private Timer ponderStopTimer;
+    private final int[] plannedHops = new int[Bitboard.SQUARES];
+    private int plannedHopCount;
+    private int nextHop;
     private Timer moveTimer;
     private ComputerMoveListener listener;
     private List<Point> currentPossibleMoves = new ArrayList<>();
     private Piece currentSelectedPiece = null;
 
     public ComputerPlayer(GameLogic gameLogic) {
+        this(gameLogic, new RandomMoveStrategy());
+    }
+
+    public ComputerPlayer(GameLogic gameLogic, MoveStrategy strategy) {
         this.gameLogic = gameLogic;
+        this.strategy = strategy;
+    }
+
+    public MoveStrategy getStrategy() {
+        return strategy;
+    }
+
+    public void setStrategy(MoveStrategy strategy) {
+        cancelThinking();
+        this.strategy = strategy;
+    }
+
+    /**
+     * Ustawia książkę otwarć sprawdzaną przed wyborem ruchu przez strategię.
+     *
+     * @param openingBook Książka otwarć lub null, żeby z niej nie korzystać
+     */
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    /**
+     * Włącza namysł w czasie ruchu przeciwnika. Po trafionym przewidywaniu
+     * namysł trwa jeszcze podany czas, więc silnik myśli dłużej bez
+     * dodatkowego opóźnienia ruchu. Przy grze na czas zamiast podanego czasu
+     * używany jest czas docelowy z {@link TimeManager}.
+     *
+     * @param moveTimeMillis Czas namysłu po trafionym przewidywaniu
+     */
+    public void setPondering(boolean enabled, long moveTimeMillis) {
+        if (!enabled && pondering) {
+            cancelThinking();
+        }
+        ponderingEnabled = enabled;
+        ponderMoveTimeMillis = moveTimeMillis;
+    }
+
+    /**
+     * Ustawia przydział czasu na ruch przy grze na czas. Bez niego strategia
+     * myśli nad każdym ruchem tyle samo.
+     *
+     * @param timeManager Przydział czasu lub null, żeby grać bez zegara
+     */
+    public void setTimeManager(TimeManager timeManager) {
+        this.timeManager = timeManager;
+    }
+
+    /**
+     * Ustawia czas pozostały na zegarze komputera. Należy ją wywołać przed
+     * {@link #makeMove(int)}; opóźnienie ruchu jest odliczane od tego czasu.
+     */
+    public void setClock(long remainingMillis) {
+        clockDeadline = System.nanoTime() + remainingMillis * 1_000_000L;
+    }
+
+    public boolean isPondering() {
+        return pondering;
     }
 
     public List<Point> getCurrentPossibleMoves() {
@@ -30,105 +127,357 @@ public class ComputerPlayer {
     }
 
     public void makeMove(int delay) {
-        stopTimer();
+        if (moveTimer != null && moveTimer.isRunning()) {
+            moveTimer.stop();
+        }
+        // Namysł nad przewidywaną odpowiedzią jest rozstrzygany dopiero w handleMove
+        if (!pondering) {
+            cancelThinking();
+        }
 
-        moveTimer = new Timer(delay, _ -> {
-            if (gameLogic.isContinuedCapture() && gameLogic.getCapturingPiece() != null) {
-                handleContinuedCapture();
-            } else if (!gameLogic.getPiecesCanCapture().isEmpty()) {
-                handleRequiredCapture();
-            } else {
-                handleRegularMove();
-            }
-        });
+        // Ruch wymuszony jest wykonywany bez opóźnienia
+        if (!isFollowingPlan() && getForcedMove() != Move.NONE) {
+            delay = 0;
+        }
+        moveTimer = new Timer(delay, _ -> handleMove());
         moveTimer.setRepeats(false);
         moveTimer.start();
     }
 
+    /**
+     * Zatrzymuje zaplanowany ruch i anuluje trwający namysł silnika.
+     */
     public void stopTimer() {
         if (moveTimer != null && moveTimer.isRunning()) {
             moveTimer.stop();
         }
+        cancelThinking();
     }
 
-    private void handleContinuedCapture() {
-        Piece capturingPiece = gameLogic.getCapturingPiece();
-        List<Point> captures = new ArrayList<>();
-        gameLogic.checkCaptures(capturingPiece, captures);
+    public boolean isThinking() {
+        return thinking != null;
+    }
+
+    /**
+     * Zwraca statystyki ostatniego wyboru ruchu przez strategię, także
+     * namysłu w czasie ruchu przeciwnika. Te same dane są zapisywane jako
+     * zdarzenia JFR {@link SearchEvent}.
+     *
+     * @return Statystyki lub null, jeśli strategia ich nie zbiera albo nie
+     * wybrała jeszcze ruchu
+     */
+    public SearchStatistics getLastStatistics() {
+        return lastStatistics;
+    }
+
+    /**
+     * Wybiera ruch dla strony na posunięciu z książki otwarć, a jeśli pozycji
+     * w niej nie ma, za pomocą ustawionej strategii. Bicie wielokrotne jest
+     * zwracane jako jeden ruch obejmujący całą sekwencję.
+     *
+     * @return Wybrany ruch lub {@link Move#NONE}, gdy nie ma ruchów
+     */
+    public int selectMove() {
+        int bookMove = probeOpeningBook();
+        if (bookMove != Move.NONE) {
+            return bookMove;
+        }
+        strategy.clearStop();
+        return instrumentedSelect(strategy, gameLogic, false, 0, 0);
+    }
+
+    // Wybiera ruch strategią i publikuje jej statystyki; zerowy czas maksymalny oznacza grę bez zegara
+    private int instrumentedSelect(MoveStrategy current, GameLogic game, boolean ponder, long targetMillis,
+            long maxMillis) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        int move;
+        if (ponder) {
+            move = current.ponder(game);
+        } else if (maxMillis > 0) {
+            move = current.selectMove(game, targetMillis, maxMillis);
+        } else {
+            move = current.selectMove(game);
+        }
+        event.end();
+
+        SearchStatistics statistics = current.getLastStatistics();
+        if (statistics == null) {
+            return move;
+        }
+        lastStatistics = statistics;
+        logger.debug(statistics.toString());
+        if (event.shouldCommit()) {
+            event.set(statistics, ponder);
+            event.commit();
+        }
+        return move;
+    }
+
+    private void handleMove() {
+        if (isFollowingPlan()) {
+            playNextHop();
+            return;
+        }
+
+        // Jedyny dozwolony ruch, np. wymuszone bicie, jest wykonywany bez namysłu
+        int forcedMove = getForcedMove();
+        if (forcedMove != Move.NONE) {
+            cancelThinking();
+            logger.info("Ruch wymuszony: " + Move.toString(forcedMove));
+            playMove(forcedMove);
+            return;
+        }
+
+        // Ruch z książki jest wykonywany od razu, bez uruchamiania silnika
+        int bookMove = probeOpeningBook();
+        if (bookMove != Move.NONE) {
+            cancelThinking();
+            playMove(bookMove);
+            return;
+        }
+
+        if (pondering && gameLogic.getHash() == ponderHash) {
+            onPonderHit();
+            return;
+        }
+        if (pondering) {
+            logger.debug("Przeciwnik wykonał inny ruch niż przewidywany");
+        }
+        startThinking();
+    }
+
+    private int getForcedMove() {
+        if (gameLogic.isGameOver()) {
+            return Move.NONE;
+        }
+        return gameLogic.generateFullMoves(forcedMoves) == 1 ? forcedMoves[0] : Move.NONE;
+    }
 
-        if (!captures.isEmpty()) {
-            selectAndMove(capturingPiece, captures);
+    private int probeOpeningBook() {
+        if (openingBook == null) {
+            return Move.NONE;
+        }
+        int move = openingBook.probe(gameLogic);
+        if (move != Move.NONE) {
+            logger.info("Ruch z książki otwarć: " + Move.toString(move));
         }
+        return move;
     }
 
-    private void handleRequiredCapture() {
-        List<Point> piecesCanCapture = gameLogic.getPiecesCanCapture();
-        Point capturePoint = piecesCanCapture.get(random.nextInt(piecesCanCapture.size()));
-        Piece piece = gameLogic.getBoard()[capturePoint.y][capturePoint.x];
+    private void startThinking() {
+        cancelThinking();
+        searchGame.copyFrom(gameLogic);
+        if (listener != null) {
+            listener.onThinkingStarted();
+        }
+        submitSearch(false);
+    }
 
-        List<Point> captures = new ArrayList<>();
-        gameLogic.checkCaptures(piece, captures);
+    /**
+     * Zaczyna namysł w czasie ruchu przeciwnika nad pozycją po jego
+     * przewidywanej odpowiedzi. Nic nie robi, jeśli namysł jest wyłączony
+     * albo strategia nie przewiduje odpowiedzi.
+     */
+    public void startPondering() {
+        if (!ponderingEnabled || gameLogic.isGameOver() || gameLogic.isContinuedCapture()) {
+            return;
+        }
 
-        if (!captures.isEmpty()) {
-            selectAndMove(piece, captures);
+        cancelThinking();
+        int predicted = strategy.predictMove(gameLogic);
+        if (predicted == Move.NONE) {
+            return;
         }
+
+        searchGame.copyFrom(gameLogic);
+        searchGame.makeMove(predicted);
+        ponderHash = searchGame.getHash();
+        pondering = true;
+        logger.debug("Namysł w czasie ruchu przeciwnika, przewidywana odpowiedź: " + Move.toString(predicted));
+        submitSearch(true);
     }
 
-    private void handleRegularMove() {
-        List<ComputerMove> allMoves = new ArrayList<>();
-        Piece[][] board = gameLogic.getBoard();
+    private void submitSearch(boolean ponder) {
+        int id = searchId;
+        long hash = searchGame.getHash();
+        strategy.setSearchListener((depth, score, nodes, bestMove) -> SwingUtilities.invokeLater(() -> {
+            if (id == searchId && !pondering && listener != null) {
+                listener.onThinkingProgress(depth, score, nodes);
+            }
+        }));
+
+        long targetMillis = 0;
+        long maxMillis = 0;
+        if (!ponder && timeManager != null) {
+            long remainingMillis = getRemainingMillis();
+            int pieces = searchGame.getPieceCount(true) + searchGame.getPieceCount(false);
+            targetMillis = timeManager.getTargetMillis(remainingMillis, pieces);
+            maxMillis = timeManager.getMaxMillis(remainingMillis, pieces);
+            logger.debug("Czas na ruch: docelowy " + targetMillis + " ms, maksymalny " + maxMillis
+                    + " ms, na zegarze " + remainingMillis + " ms");
+        }
 
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                Piece piece = board[row][col];
-                if (piece != null && !piece.isWhite()) {
-                    List<Point> moves = gameLogic.calculatePossibleMoves(piece);
-                    for (Point move : moves) {
-                        allMoves.add(new ComputerMove(piece, move));
-                    }
-                }
+        MoveStrategy current = strategy;
+        current.clearStop();
+        long target = targetMillis;
+        long max = maxMillis;
+        thinking = executor.submit(() -> {
+            int move = instrumentedSelect(current, searchGame, ponder, target, max);
+            SwingUtilities.invokeLater(() -> onMoveFound(id, hash, move));
+        });
+    }
+
+    // Przeciwnik wykonał przewidywany ruch: namysł trwa dalej jako zwykły, z limitem czasu liczonym od teraz
+    private void onPonderHit() {
+        logger.info("Przeciwnik wykonał przewidywany ruch, silnik kontynuuje namysł");
+        pondering = false;
+        if (thinking == null) {
+            int move = ponderResult;
+            ponderResult = Move.NONE;
+            if (move == Move.NONE) {
+                startThinking();
+            } else {
+                playMove(move);
             }
+            return;
         }
 
-        if (!allMoves.isEmpty()) {
-            ComputerMove selectedMove = allMoves.get(random.nextInt(allMoves.size()));
-            currentSelectedPiece = selectedMove.piece;
-            currentPossibleMoves = gameLogic.calculatePossibleMoves(selectedMove.piece);
+        if (listener != null) {
+            listener.onThinkingStarted();
+        }
 
-            if (listener != null) {
-                listener.onMoveSelected(selectedMove.piece, selectedMove.move.y, selectedMove.move.x);
+        long moveTimeMillis = ponderMoveTimeMillis;
+        if (timeManager != null) {
+            moveTimeMillis = timeManager.getTargetMillis(getRemainingMillis(),
+                    gameLogic.getPieceCount(true) + gameLogic.getPieceCount(false));
+        }
+        int id = searchId;
+        ponderStopTimer = new Timer((int) moveTimeMillis, _ -> {
+            if (id == searchId && thinking != null) {
+                strategy.stop();
             }
+        });
+        ponderStopTimer.setRepeats(false);
+        ponderStopTimer.start();
+    }
+
+    private long getRemainingMillis() {
+        return (clockDeadline - System.nanoTime()) / 1_000_000L;
+    }
+
+    private void onMoveFound(int id, long hash, int move) {
+        if (id != searchId) {
+            return;
+        }
+        thinking = null;
+        if (pondering) {
+            // Namysł skończył się przed ruchem przeciwnika; wynik czeka na trafione przewidywanie
+            ponderResult = move;
+            return;
+        }
+        stopPonderTimer();
+        if (listener != null) {
+            listener.onThinkingFinished();
+        }
+
+        if (move == Move.NONE) {
+            return;
+        }
+        if (gameLogic.getHash() != hash) {
+            logger.warning("Pozycja zmieniła się w trakcie namysłu, ruch odrzucony");
+            return;
         }
+        playMove(move);
     }
 
-    private void selectAndMove(Piece piece, List<Point> moves) {
+    private void playMove(int move) {
+        plannedHopCount = gameLogic.expandMove(move, plannedHops);
+        nextHop = 0;
+        playNextHop();
+    }
+
+    private void cancelThinking() {
+        searchId++;
+        boolean wasPondering = pondering;
+        cancelPondering();
+        if (thinking == null) {
+            return;
+        }
+
+        strategy.stop();
+        try {
+            thinking.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Przerwano oczekiwanie na zatrzymanie silnika", e);
+        } catch (ExecutionException e) {
+            logger.error("Błąd w wątku silnika", e);
+        }
+        thinking = null;
+        if (listener != null && !wasPondering) {
+            listener.onThinkingFinished();
+        }
+    }
+
+    private void cancelPondering() {
+        pondering = false;
+        ponderResult = Move.NONE;
+        stopPonderTimer();
+    }
+
+    private void stopPonderTimer() {
+        if (ponderStopTimer != null) {
+            ponderStopTimer.stop();
+            ponderStopTimer = null;
+        }
+    }
+
+    private void playNextHop() {
+        if (nextHop >= plannedHopCount) {
+            return;
+        }
+
+        int hop = plannedHops[nextHop++];
+        int from = Move.from(hop);
+        int to = Move.to(hop);
+
+        Piece piece = gameLogic.getBoard()[Bitboard.row(from)][Bitboard.col(from)];
         currentSelectedPiece = piece;
-        currentPossibleMoves = new ArrayList<>(moves);
+        currentPossibleMoves = gameLogic.calculatePossibleMoves(piece);
 
-        Point movePoint = moves.get(random.nextInt(moves.size()));
         if (listener != null) {
-            listener.onMoveSelected(piece, movePoint.y, movePoint.x);
+            listener.onMoveSelected(piece, Bitboard.row(to), Bitboard.col(to));
         }
     }
 
+    private boolean isFollowingPlan() {
+        Piece capturingPiece = gameLogic.getCapturingPiece();
+        if (capturingPiece == null || nextHop >= plannedHopCount) {
+            return false;
+        }
+        return Move.from(plannedHops[nextHop]) == Bitboard.square(capturingPiece.getRow(), capturingPiece.getCol());
+    }
+
     public void clearSelection() {
         currentSelectedPiece = null;
         currentPossibleMoves.clear();
     }
 
-    private static class ComputerMove {
+    public interface ComputerMoveListener {
 
-        Piece piece;
-        Point move;
+        void onMoveSelected(Piece piece, int row, int col);
 
-        ComputerMove(Piece piece, Point move) {
-            this.piece = piece;
-            this.move = move;
+        default void onThinkingStarted() {
         }
-    }
 
-    public interface ComputerMoveListener {
+        /**
+         * Wywoływana w wątku Swing po każdej zakończonej iteracji przeszukiwania.
+         */
+        default void onThinkingProgress(int depth, int score, long nodes) {
+        }
 
-        void onMoveSelected(Piece piece, int row, int col);
+        default void onThinkingFinished() {
+        }
     }
 }
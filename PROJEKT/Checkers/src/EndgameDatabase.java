@@ -0,0 +1,327 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Baza końcówek z wynikiem i odległością do końca gry dla każdej pozycji z
+ * co najwyżej kilkoma bierkami. Plik tworzy {@link EndgameGenerator}, a
+ * silnik czyta go przez {@link MappedByteBuffer}, więc baza nie zajmuje
+ * sterty i może być czytana równolegle przez wiele wątków. Plik dla 6
+ * bierek ma kilka gigabajtów, więc jest mapowany w segmentach po 1 GB, a
+ * położenie wpisu w pliku jest liczbą typu long.
+ * <p>
+ * Zapisywane są tylko pozycje z białymi na posunięciu; pozycję z czarnymi
+ * na posunięciu obraca się o 180 stopni i zamienia kolory. Pozycje są
+ * pogrupowane według składu materiału (pionki i damki obu stron), a w
+ * obrębie grupy indeks składa się z numerów kombinacji pól każdego rodzaju
+ * bierek. Wpis to 0 dla remisu albo liczba półruchów do końca gry przy
+ * najlepszej grze obu stron powiększona o 1; nieparzysta liczba półruchów
+ * oznacza wygraną strony na posunięciu. Każda grupa zapisuje wpisy na
+ * najmniejszej liczbie bitów, która mieści jej największy wpis.
+ * <p>
+ * Układ pliku: nagłówek (znacznik, wersja, liczba bierek), szerokość wpisu
+ * w bitach dla każdej grupy w kolejności {@link #signatures}, a potem
+ * tabele grup w tej samej kolejności, każda od pełnego bajtu.
+ */
+public class EndgameDatabase {
+
+    private static final Logger logger = new Logger(EndgameDatabase.class);
+
+    // Wynik dla strony na posunięciu
+    public static final int UNKNOWN = -1;
+    public static final int DRAW = 0;
+    public static final int WIN = 1;
+    public static final int LOSS = 2;
+
+    public static final int MAX_SUPPORTED_PIECES = 6;
+
+    // Największa szerokość wpisu w bitach
+    static final int MAX_ENTRY_BITS = 16;
+
+    static final int MAGIC = 0x57444231;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 3 * Integer.BYTES;
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    // Symbol Newtona C(n, k) dla n <= 32
+    private static final long[][] BINOMIAL = new long[Bitboard.SQUARES + 1][MAX_SUPPORTED_PIECES + 1];
+
+    static {
+        for (int n = 0; n <= Bitboard.SQUARES; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= Math.min(n, MAX_SUPPORTED_PIECES); k++) {
+                BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + (k <= n - 1 ? BINOMIAL[n - 1][k] : 0);
+            }
+        }
+    }
+
+    private final MappedByteBuffer[] segments;
+    private final int maxPieces;
+
+    // Przesunięcie tabeli w pliku i szerokość wpisu indeksowane kodem składu materiału
+    private final long[] offsets = new long[1 << 16];
+    private final int[] widths = new int[1 << 16];
+
+    private EndgameDatabase(MappedByteBuffer[] segments, int maxPieces) {
+        this.segments = segments;
+        this.maxPieces = maxPieces;
+
+        List<Integer> signatures = signatures(maxPieces);
+        long offset = HEADER_BYTES + signatures.size();
+        for (int i = 0; i < signatures.size(); i++) {
+            int signature = signatures.get(i);
+            offsets[signature] = offset;
+            widths[signature] = byteAt(segments, HEADER_BYTES + i);
+            offset += tableBytes(signature, widths[signature]);
+        }
+    }
+
+    /**
+     * Otwiera plik bazy końcówek.
+     *
+     * @return Baza lub null, jeśli pliku nie ma albo jest niepoprawny
+     */
+    public static EndgameDatabase open(Path path) {
+        if (!Files.isRegularFile(path)) {
+            logger.warning("Brak pliku bazy końcówek: " + path);
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                logger.error("Niepoprawny plik bazy końcówek: " + path);
+                return null;
+            }
+
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                long position = (long) i << SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(SEGMENT_MASK + 1, size - position));
+            }
+
+            MappedByteBuffer header = segments[0];
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                logger.error("Niepoprawny plik bazy końcówek: " + path);
+                return null;
+            }
+
+            int maxPieces = header.getInt(8);
+            if (maxPieces < 2 || maxPieces > MAX_SUPPORTED_PIECES || size != fileSize(segments, size, maxPieces)) {
+                logger.error("Niepoprawny rozmiar bazy końcówek: " + path);
+                return null;
+            }
+
+            logger.info("Wczytano bazę końcówek do " + maxPieces + " bierek (" + size / 1024 + " KB)");
+            return new EndgameDatabase(segments, maxPieces);
+        } catch (IOException e) {
+            logger.error("Nie udało się otworzyć bazy końcówek: " + path, e);
+            return null;
+        }
+    }
+
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * Sprawdza, czy pozycja mieści się w bazie.
+     */
+    public boolean contains(int white, int black) {
+        int pieces = Integer.bitCount(white | black);
+        return pieces <= maxPieces && white != 0 && black != 0;
+    }
+
+    /**
+     * Zwraca wynik pozycji dla strony na posunięciu.
+     *
+     * @return {@link #WIN}, {@link #LOSS}, {@link #DRAW} lub {@link #UNKNOWN},
+     * jeśli pozycji nie ma w bazie
+     */
+    public int probe(int white, int black, int kings, boolean isWhiteTurn) {
+        if (!contains(white, black)) {
+            return UNKNOWN;
+        }
+        int entry = entry(white, black, kings, isWhiteTurn);
+        if (entry == 0) {
+            return DRAW;
+        }
+        return (entry & 1) == 0 ? WIN : LOSS;
+    }
+
+    /**
+     * Zwraca liczbę półruchów do końca gry przy najlepszej grze obu stron.
+     * Nieparzysta liczba oznacza wygraną strony na posunięciu, parzysta
+     * przegraną.
+     *
+     * @return Liczba półruchów lub -1 dla remisu i pozycji spoza bazy
+     */
+    public int distance(int white, int black, int kings, boolean isWhiteTurn) {
+        if (!contains(white, black)) {
+            return -1;
+        }
+        return entry(white, black, kings, isWhiteTurn) - 1;
+    }
+
+    private int entry(int white, int black, int kings, boolean isWhiteTurn) {
+        if (!isWhiteTurn) {
+            int flippedWhite = Integer.reverse(black);
+            black = Integer.reverse(white);
+            white = flippedWhite;
+            kings = Integer.reverse(kings);
+        }
+
+        int signature = signature(white, black, kings);
+        int width = widths[signature];
+        if (width == 0) {
+            return 0;
+        }
+
+        // Wpis może zaczynać się w środku bajtu i zajmować do trzech bajtów
+        long bit = index(white, black, kings) * width;
+        long offset = offsets[signature] + (bit >>> 3);
+        int shift = (int) (bit & 7);
+        int bits = 0;
+        for (int i = 0; i * 8 < shift + width; i++) {
+            bits |= (byteAt(segments, offset + i) & 0xFF) << (i * 8);
+        }
+        return (bits >>> shift) & ((1 << width) - 1);
+    }
+
+    /**
+     * Zwraca kod składu materiału: liczby białych pionków, białych damek,
+     * czarnych pionków i czarnych damek po 4 bity.
+     */
+    static int signature(int whiteMen, int whiteKings, int blackMen, int blackKings) {
+        return whiteMen | (whiteKings << 4) | (blackMen << 8) | (blackKings << 12);
+    }
+
+    static int signature(int white, int black, int kings) {
+        return signature(Integer.bitCount(white & ~kings), Integer.bitCount(white & kings),
+                Integer.bitCount(black & ~kings), Integer.bitCount(black & kings));
+    }
+
+    static int count(int signature, int group) {
+        return (signature >>> (group * 4)) & 0xF;
+    }
+
+    /**
+     * Zwraca skład materiału po zamianie stron.
+     */
+    static int mirror(int signature) {
+        return ((signature >>> 8) & 0xFF) | ((signature & 0xFF) << 8);
+    }
+
+    /**
+     * Zwraca składy materiału z co najwyżej podaną liczbą bierek, po jednej
+     * lub więcej bierce każdej strony, w kolejności tabel w pliku.
+     */
+    static List<Integer> signatures(int maxPieces) {
+        List<Integer> signatures = new ArrayList<>();
+        for (int total = 2; total <= maxPieces; total++) {
+            for (int whiteMen = 0; whiteMen <= total; whiteMen++) {
+                for (int whiteKings = 0; whiteMen + whiteKings <= total; whiteKings++) {
+                    for (int blackMen = 0; whiteMen + whiteKings + blackMen <= total; blackMen++) {
+                        int blackKings = total - whiteMen - whiteKings - blackMen;
+                        if (whiteMen + whiteKings > 0 && blackMen + blackKings > 0) {
+                            signatures.add(signature(whiteMen, whiteKings, blackMen, blackKings));
+                        }
+                    }
+                }
+            }
+        }
+        return signatures;
+    }
+
+    static long tableSize(int signature) {
+        long size = 1;
+        for (int group = 0; group < 4; group++) {
+            size *= BINOMIAL[Bitboard.SQUARES][count(signature, group)];
+        }
+        return size;
+    }
+
+    static long tableBytes(int signature, int width) {
+        return (tableSize(signature) * width + 7) / 8;
+    }
+
+    private static byte byteAt(MappedByteBuffer[] segments, long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_MASK));
+    }
+
+    // Rozmiar pliku wynikający z nagłówka i szerokości wpisów; -1, jeśli szerokość jest niepoprawna
+    private static long fileSize(MappedByteBuffer[] segments, long actualSize, int maxPieces) {
+        List<Integer> signatures = signatures(maxPieces);
+        long size = HEADER_BYTES + signatures.size();
+        if (actualSize < size) {
+            return -1;
+        }
+        for (int i = 0; i < signatures.size(); i++) {
+            int width = byteAt(segments, HEADER_BYTES + i);
+            if (width < 0 || width > MAX_ENTRY_BITS) {
+                return -1;
+            }
+            size += tableBytes(signatures.get(i), width);
+        }
+        return size;
+    }
+
+    /**
+     * Zwraca indeks pozycji z białymi na posunięciu w tabeli jej składu
+     * materiału.
+     */
+    static long index(int white, int black, int kings) {
+        int signature = signature(white, black, kings);
+        long index = rank(white & ~kings);
+        index = index * BINOMIAL[Bitboard.SQUARES][count(signature, 1)] + rank(white & kings);
+        index = index * BINOMIAL[Bitboard.SQUARES][count(signature, 2)] + rank(black & ~kings);
+        index = index * BINOMIAL[Bitboard.SQUARES][count(signature, 3)] + rank(black & kings);
+        return index;
+    }
+
+    /**
+     * Odtwarza maski bierek z indeksu pozycji. Zwraca maski czterech
+     * rodzajów bierek w kolejności: białe pionki, białe damki, czarne pionki,
+     * czarne damki.
+     */
+    static void unindex(int signature, long index, int[] masks) {
+        for (int group = 3; group >= 0; group--) {
+            int count = count(signature, group);
+            long size = BINOMIAL[Bitboard.SQUARES][count];
+            masks[group] = unrank(index % size, count);
+            index /= size;
+        }
+    }
+
+    // Numer kombinacji pól w kolejności koleksykograficznej
+    private static long rank(int mask) {
+        long rank = 0;
+        int k = 1;
+        for (; mask != 0; mask &= mask - 1) {
+            rank += BINOMIAL[Integer.numberOfTrailingZeros(mask)][k++];
+        }
+        return rank;
+    }
+
+    private static int unrank(long rank, int count) {
+        int mask = 0;
+        int square = Bitboard.SQUARES - 1;
+        for (int k = count; k > 0; k--) {
+            while (BINOMIAL[square][k] > rank) {
+                square--;
+            }
+            mask |= 1 << square;
+            rank -= BINOMIAL[square][k];
+            square--;
+        }
+        return mask;
+    }
+}
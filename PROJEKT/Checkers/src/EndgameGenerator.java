@@ -0,0 +1,314 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Narzędzie tworzące plik {@link EndgameDatabase} przez analizę wsteczną.
+ * Składy materiału są rozwiązywane od najmniejszej liczby bierek i pionków,
+ * więc wynik pozycji po biciu lub promocji jest już znany. Skład i jego
+ * lustrzane odbicie (ten sam materiał po zamianie stron) zależą od siebie
+ * nawzajem i są rozwiązywane razem.
+ * <p>
+ * Pozycje są rozstrzygane poziomami odległości od końca gry. Na poziomie
+ * {@code d} pozycja jest wygrana, gdy jakiś ruch prowadzi do pozycji
+ * przegranej w {@code d - 1} półruchach, a przegrana, gdy nie ma ruchów
+ * albo wszystkie ruchy prowadzą do wygranych przeciwnika w co najwyżej
+ * {@code d - 1} półruchach. Pozycje nierozstrzygnięte po ostatnim poziomie
+ * są remisowe.
+ * <p>
+ * Ruchy są generowane przez {@link Bitboard} tak jak w
+ * {@link GameLogic#generateFullMoves}, z pełnymi sekwencjami bić.
+ * <p>
+ * Użycie: {@code java EndgameGenerator [liczba bierek] [plik]}
+ */
+public class EndgameGenerator {
+
+    private static final Logger logger = new Logger(EndgameGenerator.class);
+
+    private static final int DEFAULT_PIECES = 4;
+    private static final String DEFAULT_FILE = "endgame.db";
+
+    // Wartości w pamięci: 0 dla pozycji nierozstrzygniętej, wpis bazy dla rozstrzygniętej
+    private static final short UNRESOLVED = 0;
+    private static final short INVALID = -1;
+
+    // Wpis pozycji, w której strona na posunięciu nie ma już bierek (przegrana w 0 półruchach)
+    private static final int NO_PIECES = 1;
+
+    private final int maxPieces;
+    private final short[][] tables = new short[1 << 16][];
+    private final Bitboard bitboard = new Bitboard();
+    private final int[] moves = new int[Move.MAX_MOVES];
+    private final int[] masks = new int[4];
+
+    // Czy na bieżącym poziomie któraś nierozstrzygnięta pozycja ma ruch do pozycji rozstrzygniętej
+    // na tym lub dalszym poziomie; tylko wtedy kolejne poziomy mogą coś zmienić
+    private boolean pending;
+
+    public EndgameGenerator(int maxPieces) {
+        this.maxPieces = maxPieces;
+    }
+
+    public static void main(String[] args) {
+        int maxPieces = DEFAULT_PIECES;
+        Path path = Path.of(DEFAULT_FILE);
+        try {
+            if (args.length > 0) {
+                maxPieces = Integer.parseInt(args[0]);
+            }
+        } catch (NumberFormatException e) {
+            logger.error("Niepoprawna liczba bierek: " + args[0]);
+            return;
+        }
+        if (args.length > 1) {
+            path = Path.of(args[1]);
+        }
+        if (maxPieces < 2 || maxPieces > EndgameDatabase.MAX_SUPPORTED_PIECES) {
+            logger.error("Liczba bierek musi być z zakresu 2-" + EndgameDatabase.MAX_SUPPORTED_PIECES);
+            return;
+        }
+
+        EndgameGenerator generator = new EndgameGenerator(maxPieces);
+        long start = System.nanoTime();
+        generator.generate();
+        if (generator.write(path)) {
+            logger.info("Zapisano bazę końcówek do " + maxPieces + " bierek w " + path + " ("
+                    + (System.nanoTime() - start) / 1_000_000_000L + " s)");
+        }
+    }
+
+    /**
+     * Rozwiązuje wszystkie składy materiału.
+     */
+    public void generate() {
+        List<Integer> order = new ArrayList<>(EndgameDatabase.signatures(maxPieces));
+        order.sort(Comparator.comparingInt((Integer signature) -> pieces(signature)).thenComparingInt(
+                EndgameGenerator::men));
+
+        for (int signature : order) {
+            if (tables[signature] != null) {
+                continue;
+            }
+            int mirror = EndgameDatabase.mirror(signature);
+            tables[signature] = new short[(int) EndgameDatabase.tableSize(signature)];
+            tables[mirror] = mirror == signature ? tables[signature]
+                    : new short[(int) EndgameDatabase.tableSize(mirror)];
+            solve(signature, mirror);
+        }
+    }
+
+    private void solve(int signature, int mirror) {
+        long start = System.nanoTime();
+        int level = 0;
+        boolean changed = true;
+        while (changed || pending) {
+            pending = false;
+            changed = solveLevel(signature, level);
+            if (mirror != signature) {
+                changed |= solveLevel(mirror, level);
+            }
+            level++;
+        }
+
+        int[] counts = new int[3];
+        int distance = countResults(signature, counts);
+        if (mirror != signature) {
+            distance = Math.max(distance, countResults(mirror, counts));
+        }
+        logger.info(String.format("%s: wygrane %d, przegrane %d, remisy %d, najdłuższa %d półruchów, czas %d ms",
+                name(signature), counts[EndgameDatabase.WIN], counts[EndgameDatabase.LOSS],
+                counts[EndgameDatabase.DRAW], distance, (System.nanoTime() - start) / 1_000_000L));
+    }
+
+    // Rozstrzyga pozycje odległe o podaną liczbę półruchów od końca gry; zwraca true, jeśli coś się zmieniło
+    private boolean solveLevel(int signature, int level) {
+        short[] table = tables[signature];
+        boolean changed = false;
+        for (int index = 0; index < table.length; index++) {
+            if (table[index] != UNRESOLVED) {
+                continue;
+            }
+
+            EndgameDatabase.unindex(signature, index, masks);
+            short value = isValid(masks)
+                    ? solvePosition(masks[0] | masks[1], masks[2] | masks[3], masks[1] | masks[3], level)
+                    : INVALID;
+            if (value != UNRESOLVED) {
+                table[index] = value;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    // Pionki nie mogą stać w wierszu promocji, a bierki nie mogą zajmować tego samego pola
+    private static boolean isValid(int[] masks) {
+        int occupied = 0;
+        int count = 0;
+        for (int mask : masks) {
+            occupied |= mask;
+            count += Integer.bitCount(mask);
+        }
+        return Integer.bitCount(occupied) == count
+                && (masks[0] & Bitboard.promotionRow(true)) == 0
+                && (masks[2] & Bitboard.promotionRow(false)) == 0;
+    }
+
+    /**
+     * Sprawdza, czy pozycja z białymi na posunięciu jest wygrana lub
+     * przegrana w podanej liczbie półruchów.
+     *
+     * @return Wpis bazy lub {@link #UNRESOLVED}
+     */
+    private short solvePosition(int white, int black, int kings, int level) {
+        bitboard.set(white, black, kings);
+        int count = 0;
+        int captureSources = bitboard.getCaptureSources(true);
+        if (captureSources != 0) {
+            for (int sources = captureSources; sources != 0; sources &= sources - 1) {
+                count = bitboard.generateCapturePaths(Integer.numberOfTrailingZeros(sources), moves, count);
+            }
+        } else {
+            count = bitboard.generateQuietMoves(true, moves, 0);
+        }
+
+        boolean allWin = true;
+        for (int i = 0; i < count; i++) {
+            int entry = childEntry(white, black, kings, moves[i]);
+
+            // Odległość przeciwnika od końca gry; pozycje rozstrzygnięte na tym poziomie mają odległość level
+            int distance = entry - 1;
+            boolean opponentWins = entry > 0 && (entry & 1) == 0;
+            if (!opponentWins && entry > 0 && distance == level - 1) {
+                return (short) (level + 1);
+            }
+            if (!opponentWins || distance > level - 1) {
+                allWin = false;
+            }
+            if (entry > 0 && distance >= level) {
+                pending = true;
+            }
+        }
+        return allWin ? (short) (level + 1) : UNRESOLVED;
+    }
+
+    // Wpis pozycji po ruchu, z punktu widzenia przeciwnika
+    private int childEntry(int white, int black, int kings, int move) {
+        int from = 1 << Move.from(move);
+        int to = 1 << Move.to(move);
+        int captured = Move.captured(move);
+
+        int newBlack = black & ~captured;
+        if (newBlack == 0) {
+            return NO_PIECES;
+        }
+        int newWhite = (white & ~from) | to;
+        int newKings = kings & ~captured & ~from;
+        if ((kings & from) != 0 || Move.isPromotion(move)) {
+            newKings |= to;
+        }
+
+        // Przeciwnik na posunięciu: obrót planszy i zamiana kolorów
+        int opponentWhite = Integer.reverse(newBlack);
+        int opponentBlack = Integer.reverse(newWhite);
+        int opponentKings = Integer.reverse(newKings);
+        short[] table = tables[EndgameDatabase.signature(opponentWhite, opponentBlack, opponentKings)];
+        return table[(int) EndgameDatabase.index(opponentWhite, opponentBlack, opponentKings)];
+    }
+
+    // Zlicza wyniki i zwraca największą odległość od końca gry
+    private int countResults(int signature, int[] counts) {
+        int distance = 0;
+        for (short value : tables[signature]) {
+            if (value == INVALID) {
+                continue;
+            }
+            if (value == UNRESOLVED) {
+                counts[EndgameDatabase.DRAW]++;
+            } else {
+                counts[(value & 1) == 0 ? EndgameDatabase.WIN : EndgameDatabase.LOSS]++;
+                distance = Math.max(distance, value - 1);
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Zapisuje bazę: nagłówek, szerokości wpisów i tabele w kolejności
+     * {@link EndgameDatabase#signatures}.
+     *
+     * @return true, jeśli zapis się powiódł
+     */
+    public boolean write(Path path) {
+        List<Integer> signatures = EndgameDatabase.signatures(maxPieces);
+        int[] widths = new int[signatures.size()];
+        for (int i = 0; i < widths.length; i++) {
+            int max = 0;
+            for (short value : tables[signatures.get(i)]) {
+                max = Math.max(max, value);
+            }
+            widths[i] = Integer.SIZE - Integer.numberOfLeadingZeros(max);
+            if (widths[i] > EndgameDatabase.MAX_ENTRY_BITS) {
+                logger.error("Odległość od końca gry nie mieści się we wpisie bazy: " + max);
+                return false;
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(EndgameDatabase.MAGIC);
+            out.writeInt(EndgameDatabase.VERSION);
+            out.writeInt(maxPieces);
+            for (int width : widths) {
+                out.writeByte(width);
+            }
+
+            for (int i = 0; i < widths.length; i++) {
+                writeTable(out, tables[signatures.get(i)], widths[i]);
+            }
+            return true;
+        } catch (IOException e) {
+            logger.error("Nie udało się zapisać bazy końcówek: " + path, e);
+            return false;
+        }
+    }
+
+    // Pakuje wpisy od najmłodszych bitów każdego bajtu
+    private static void writeTable(DataOutputStream out, short[] table, int width) throws IOException {
+        if (width == 0) {
+            return;
+        }
+
+        long buffer = 0;
+        int bits = 0;
+        for (short value : table) {
+            buffer |= (long) Math.max(value, 0) << bits;
+            bits += width;
+            while (bits >= 8) {
+                out.writeByte((int) buffer);
+                buffer >>>= 8;
+                bits -= 8;
+            }
+        }
+        if (bits > 0) {
+            out.writeByte((int) buffer);
+        }
+    }
+
+    private static int pieces(int signature) {
+        return men(signature) + EndgameDatabase.count(signature, 1) + EndgameDatabase.count(signature, 3);
+    }
+
+    private static int men(int signature) {
+        return EndgameDatabase.count(signature, 0) + EndgameDatabase.count(signature, 2);
+    }
+
+    private static String name(int signature) {
+        return EndgameDatabase.count(signature, 0) + "p" + EndgameDatabase.count(signature, 1) + "d-"
+                + EndgameDatabase.count(signature, 2) + "p" + EndgameDatabase.count(signature, 3) + "d";
+    }
+}
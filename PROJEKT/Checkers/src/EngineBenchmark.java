@@ -0,0 +1,255 @@
+import java.lang.management.ManagementFactory;
+
+/**
+ * Mikrobenchmark najczęściej wywoływanych metod silnika na zestawie pozycji
+ * ze środka gry i z końcówek. Dla każdej operacji podaje przepustowość
+ * (operacje na sekundę) oraz liczbę bajtów alokowanych na jedną operację.
+ * Przeszukiwanie jest mierzone do stałej głębokości, a nie w limicie czasu,
+ * żeby spadek wydajności był widoczny w wyniku.
+ * <p>
+ * W trybie {@code smp} porównuje przeszukiwanie równoległe z jednowątkowym:
+ * czas dojścia do stałej głębokości na całym zestawie pozycji (najlepszy z
+ * kilku powtórzeń), liczbę węzłów na sekundę i przyspieszenie.
+ */
+public class EngineBenchmark {
+
+    private static final String[] POSITIONS = {
+            "W:W18,19,21,22,23,25,26,27,29,30,31:B2,3,5,6,7,9,10,11,13,14",
+            "B:W17,21,22,23,25,26,27,30,31:B1,3,5,6,7,9,10,11,14,15",
+            "W:W14,17,21,22,26,29,30:B5,6,9,10,11,13,19",
+            "W:WK30,27:B22,14,15,23,7,10",
+            "W:WK18,K22,K29,K31:BK2,K4,K11,9,10",
+            "B:W10,11,18,19,K30:BK1,K4,6",
+            "W:W26,29,31:B22,23,14,7,8,12",
+    };
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASUREMENT_ITERATIONS = 5;
+    private static final int SEARCH_DEPTH = 6;
+    private static final int SMP_DEPTH = 13;
+    private static final int SMP_REPEATS = 3;
+
+    private static long sink;
+
+    private final GameLogic[] games = new GameLogic[POSITIONS.length];
+    private final AlphaBetaSearch search = new AlphaBetaSearch(0);
+    private final int[] hops = new int[POSITIONS.length];
+    private final int[] fullMoves = new int[POSITIONS.length];
+    private final long iterationNanos;
+
+    public EngineBenchmark(long iterationMillis) {
+        this.iterationNanos = iterationMillis * 1_000_000L;
+
+        loadPositions(games);
+        int[] moves = new int[Move.MAX_MOVES];
+        for (int i = 0; i < POSITIONS.length; i++) {
+            // movePiece wykonuje jeden skok, więc bicie wielokrotne jest mierzone pierwszym skokiem
+            hops[i] = games[i].generateMoves(moves) > 0 ? moves[0] : Move.NONE;
+            if (hops[i] != Move.NONE && movePiece(i) == 0) {
+                throw new IllegalStateException("Ruch " + Move.toString(hops[i]) + " odrzucony w pozycji: "
+                        + POSITIONS[i]);
+            }
+            fullMoves[i] = games[i].generateFullMoves(moves) > 0 ? moves[0] : Move.NONE;
+        }
+        search.setMaxDepth(SEARCH_DEPTH);
+    }
+
+    private static void loadPositions(GameLogic[] games) {
+        for (int i = 0; i < POSITIONS.length; i++) {
+            games[i] = new GameLogic();
+            if (!FenNotation.load(games[i], POSITIONS[i])) {
+                throw new IllegalStateException("Niepoprawna pozycja w zestawie: " + POSITIONS[i]);
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        ApplicationConfig.configureLogging(false);
+
+        if (args.length > 0 && args[0].equals("smp")) {
+            int depth = args.length > 1 ? Integer.parseInt(args[1]) : SMP_DEPTH;
+            int threads = args.length > 2 ? Integer.parseInt(args[2]) : GameConstants.AI_SEARCH_THREADS;
+            compareThreads(depth, threads);
+            return;
+        }
+
+        long iterationMillis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        EngineBenchmark benchmark = new EngineBenchmark(iterationMillis);
+
+        System.out.println("Pozycje: " + POSITIONS.length + ", iteracje: " + WARMUP_ITERATIONS + " rozgrzewkowe + "
+                + MEASUREMENT_ITERATIONS + " pomiarowe po " + iterationMillis + " ms");
+        System.out.println(String.format("%-28s %16s %14s", "Operacja", "ops/s", "B/op"));
+
+        benchmark.run("calculatePossibleMoves", benchmark::calculatePossibleMoves);
+        benchmark.run("movePiece + unmakeMove", benchmark::movePiece);
+        benchmark.run("makeMove + unmakeMove", benchmark::makeMove);
+        benchmark.run("updatePiecesCanCapture", benchmark::updatePiecesCanCapture);
+        benchmark.run("checkGameOver", benchmark::checkGameOver);
+        benchmark.run("AlphaBetaSearch.search(" + SEARCH_DEPTH + ")", benchmark::search);
+
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    private long calculatePossibleMoves(int index) {
+        GameLogic game = games[index];
+        Piece[][] board = game.getBoard();
+        long result = 0;
+        for (int pieces = game.getPieces(game.isWhiteTurn()); pieces != 0; pieces &= pieces - 1) {
+            int square = Integer.numberOfTrailingZeros(pieces);
+            result += game.calculatePossibleMoves(board[Bitboard.row(square)][Bitboard.col(square)]).size();
+        }
+        return result;
+    }
+
+    private long movePiece(int index) {
+        GameLogic game = games[index];
+        int hop = hops[index];
+        if (hop == Move.NONE) {
+            return 0;
+        }
+
+        int from = Move.from(hop);
+        int to = Move.to(hop);
+        Piece piece = game.getBoard()[Bitboard.row(from)][Bitboard.col(from)];
+        if (!game.movePiece(piece, Bitboard.row(to), Bitboard.col(to))) {
+            return 0;
+        }
+        long result = game.getHash();
+        game.unmakeMove();
+        return result;
+    }
+
+    // Cały ruch, także bicie wielokrotne, jest wykonywany bez sprawdzania poprawności
+    private long makeMove(int index) {
+        GameLogic game = games[index];
+        int move = fullMoves[index];
+        if (move == Move.NONE) {
+            return 0;
+        }
+
+        game.makeMove(move);
+        long result = game.getHash();
+        game.unmakeMove();
+        return result;
+    }
+
+    private long updatePiecesCanCapture(int index) {
+        GameLogic game = games[index];
+        game.updatePiecesCanCapture();
+        return game.getPiecesCanCapture().size();
+    }
+
+    private long checkGameOver(int index) {
+        GameLogic game = games[index];
+        game.checkGameOver();
+        return game.isGameOver() ? 1 : 0;
+    }
+
+    private long search(int index) {
+        return search.search(games[index], Long.MAX_VALUE, 1);
+    }
+
+    private static void compareThreads(int depth, int threads) {
+        GameLogic[] games = new GameLogic[POSITIONS.length];
+        loadPositions(games);
+
+        System.out.println("Pozycje: " + POSITIONS.length + ", głębokość: " + depth + ", powtórzenia: "
+                + SMP_REPEATS + ", procesory: " + Runtime.getRuntime().availableProcessors());
+        System.out.println(String.format("%-8s %12s %14s %14s %12s", "Wątki", "czas ms", "węzły", "węzły/s",
+                "przyspieszenie"));
+
+        long singleThreadNanos = 0;
+        for (int count : threads > 1 ? new int[] { 1, threads } : new int[] { 1 }) {
+            ParallelSearch search = new ParallelSearch(0, count, new TranspositionTable(GameConstants.AI_HASH_SIZE_MB));
+            search.setMaxDepth(depth);
+            timeToDepth(search, games);
+
+            long nanos = Long.MAX_VALUE;
+            long nodes = 0;
+            for (int i = 0; i < SMP_REPEATS; i++) {
+                long[] result = timeToDepth(search, games);
+                if (result[0] < nanos) {
+                    nanos = result[0];
+                    nodes = result[1];
+                }
+            }
+            search.shutdown();
+
+            if (count == 1) {
+                singleThreadNanos = nanos;
+            }
+            System.out.println(String.format("%-8d %12.1f %14d %14d %12.2f", count, nanos / 1_000_000.0, nodes,
+                    nodes * 1_000_000_000L / nanos, (double) singleThreadNanos / nanos));
+        }
+    }
+
+    // Zwraca łączny czas dojścia do ustawionej głębokości i liczbę węzłów na wszystkich pozycjach
+    private static long[] timeToDepth(ParallelSearch search, GameLogic[] games) {
+        long nanos = 0;
+        long nodes = 0;
+        for (GameLogic game : games) {
+            search.getTable().clear();
+            long start = System.nanoTime();
+            search.ponder(game);
+            nanos += System.nanoTime() - start;
+            nodes += search.getNodes();
+        }
+        return new long[] { nanos, nodes };
+    }
+
+    private void run(String name, Operation operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            measure(operation);
+        }
+
+        long operations = 0;
+        long nanos = 0;
+        long bytes = 0;
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            long[] result = measure(operation);
+            operations += result[0];
+            nanos += result[1];
+            bytes += result[2];
+        }
+
+        double opsPerSecond = operations / (nanos / 1_000_000_000.0);
+        String bytesPerOperation = bytes < 0 ? "n/d" : String.format("%.1f", (double) bytes / operations);
+        System.out.println(String.format("%-28s %16.0f %14s", name, opsPerSecond, bytesPerOperation));
+    }
+
+    // Zwraca liczbę operacji, czas w nanosekundach i liczbę zaalokowanych bajtów (-1 gdy pomiar niedostępny)
+    private long[] measure(Operation operation) {
+        long operations = 0;
+        long result = 0;
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < POSITIONS.length; i++) {
+                result += operation.run(i);
+            }
+            operations += POSITIONS.length;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < iterationNanos);
+        long allocatedAfter = allocatedBytes();
+
+        sink += result;
+        long allocated = allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore;
+        return new long[] { operations, elapsed, allocated };
+    }
+
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threadBean
+                && threadBean.isThreadAllocatedMemorySupported()) {
+            return threadBean.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    private interface Operation {
+
+        long run(int index);
+    }
+}
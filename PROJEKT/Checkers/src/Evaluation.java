@@ -0,0 +1,161 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Wagi statycznej oceny pozycji. Ocena jest sumą wartości bierek zależnych
+ * tylko od koloru, rodzaju i pola: materiał, tabele wartości pól dla pionków
+ * i damek, premia za pionki w wierszu wyjściowym (ochrona przed promocją
+ * przeciwnika) i tempo, czyli premia za każdy wiersz, o który pionek
+ * posunął się do przodu. Dzięki temu {@link GameLogic} aktualizuje ocenę
+ * przyrostowo przy każdym ruchu, tak jak hasz Zobrista.
+ * <p>
+ * Tabele pól są podane z punktu widzenia białych; dla czarnych plansza jest
+ * obracana o 180 stopni. Wagi można wczytać z pliku w formacie
+ * {@link Properties}; brakujące klucze przyjmują wartości domyślne.
+ */
+public final class Evaluation {
+
+    private static final Logger logger = new Logger(Evaluation.class);
+
+    private static final int DEFAULT_MAN = 100;
+    private static final int DEFAULT_KING = 300;
+    private static final int DEFAULT_BACK_RANK = 8;
+    private static final int DEFAULT_TEMPO = 2;
+
+    // Premia za środek planszy dla pionków
+    private static final int[] DEFAULT_MAN_TABLE = {
+            0, 0, 0, 0,
+            0, 0, 0, 0,
+            0, 3, 3, 0,
+            1, 4, 4, 1,
+            1, 4, 4, 1,
+            0, 3, 3, 0,
+            0, 0, 0, 0,
+            0, 0, 0, 0,
+    };
+
+    // Premia za główną przekątną dla damek
+    private static final int[] DEFAULT_KING_TABLE = {
+            0, 0, 0, 10,
+            0, 0, 0, 10,
+            0, 0, 10, 0,
+            0, 0, 10, 0,
+            0, 10, 0, 0,
+            0, 10, 0, 0,
+            10, 0, 0, 0,
+            10, 0, 0, 0,
+    };
+
+    public static final Evaluation DEFAULT = new Evaluation(DEFAULT_MAN, DEFAULT_KING, DEFAULT_BACK_RANK,
+            DEFAULT_TEMPO, DEFAULT_MAN_TABLE, DEFAULT_KING_TABLE);
+
+    // Wartość bierki indeksowana [(kolor * 2 + damka) * 32 + pole]; dodatnia dla białych, ujemna dla czarnych
+    private final int[] values = new int[4 * Bitboard.SQUARES];
+
+    public Evaluation(int man, int king, int backRank, int tempo, int[] manTable, int[] kingTable) {
+        for (int square = 0; square < Bitboard.SQUARES; square++) {
+            // Pole z punktu widzenia czarnych po obrocie planszy
+            int mirrored = Bitboard.SQUARES - 1 - square;
+
+            values[index(square, true, false)] = manValue(square, man, backRank, tempo, manTable);
+            values[index(square, true, true)] = king + kingTable[square];
+            values[index(square, false, false)] = -manValue(mirrored, man, backRank, tempo, manTable);
+            values[index(square, false, true)] = -(king + kingTable[mirrored]);
+        }
+    }
+
+    // Wartość pionka białych na polu
+    private static int manValue(int square, int man, int backRank, int tempo, int[] manTable) {
+        int value = man + manTable[square] + tempo * (GameConstants.BOARD_SIZE - 1 - Bitboard.row(square));
+        if ((Bitboard.promotionRow(false) & (1 << square)) != 0) {
+            value += backRank;
+        }
+        return value;
+    }
+
+    /**
+     * Wczytuje wagi z pliku. Klucze: {@code man}, {@code king},
+     * {@code backRank}, {@code tempo} oraz {@code manTable} i
+     * {@code kingTable} z 32 liczbami rozdzielonymi przecinkami.
+     *
+     * @return Wczytane wagi lub {@link #DEFAULT}, jeśli pliku nie ma albo jest
+     * niepoprawny
+     */
+    public static Evaluation load(Path path) {
+        if (!Files.isRegularFile(path)) {
+            logger.warning("Brak pliku wag oceny: " + path + ", używam wag domyślnych");
+            return DEFAULT;
+        }
+
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            logger.error("Nie udało się odczytać wag oceny: " + path, e);
+            return DEFAULT;
+        }
+
+        try {
+            Evaluation evaluation = new Evaluation(
+                    parseInt(properties, "man", DEFAULT_MAN),
+                    parseInt(properties, "king", DEFAULT_KING),
+                    parseInt(properties, "backRank", DEFAULT_BACK_RANK),
+                    parseInt(properties, "tempo", DEFAULT_TEMPO),
+                    parseTable(properties, "manTable", DEFAULT_MAN_TABLE),
+                    parseTable(properties, "kingTable", DEFAULT_KING_TABLE));
+            logger.info("Wczytano wagi oceny z " + path);
+            return evaluation;
+        } catch (IllegalArgumentException e) {
+            logger.error("Niepoprawne wagi oceny w " + path + ": " + e.getMessage());
+            return DEFAULT;
+        }
+    }
+
+    private static int parseInt(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static int[] parseTable(Properties properties, String key, int[] defaultTable) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultTable;
+        }
+
+        String[] parts = value.split(",");
+        if (parts.length != Bitboard.SQUARES) {
+            throw new IllegalArgumentException(key + " musi mieć " + Bitboard.SQUARES + " wartości");
+        }
+        int[] table = new int[Bitboard.SQUARES];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = Integer.parseInt(parts[i].trim());
+        }
+        return table;
+    }
+
+    /**
+     * Zwraca wartość bierki na polu: dodatnią dla białych, ujemną dla czarnych.
+     */
+    public int value(int square, boolean isWhite, boolean isKing) {
+        return values[index(square, isWhite, isKing)];
+    }
+
+    /**
+     * Liczy ocenę całej pozycji z punktu widzenia białych.
+     */
+    public int evaluate(Bitboard board) {
+        int score = 0;
+        for (int pieces = board.getOccupied(); pieces != 0; pieces &= pieces - 1) {
+            int square = Integer.numberOfTrailingZeros(pieces);
+            score += value(square, board.isWhite(square), board.isKing(square));
+        }
+        return score;
+    }
+
+    private static int index(int square, boolean isWhite, boolean isKing) {
+        return ((isWhite ? 0 : 2) + (isKing ? 1 : 0)) * Bitboard.SQUARES + square;
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * Zapis i odczyt pozycji w notacji FEN dla warcabów, np.
+ * {@code "W:W21,22,K30:B1,2,3"}. Pierwsza litera oznacza stronę na
+ * posunięciu, dalej są listy pól białych i czarnych bierek; prefiks K
+ * oznacza damkę. Pola są numerowane od 1 do 32 wierszami od lewego górnego
+ * rogu, czyli numer pola to indeks {@link Bitboard} powiększony o 1.
+ */
+public class FenNotation {
+
+    private static final Logger logger = new Logger(FenNotation.class);
+
+    public static final String INITIAL_POSITION = "W:W21,22,23,24,25,26,27,28,29,30,31,32:B1,2,3,4,5,6,7,8,9,10,11,12";
+
+    /**
+     * Ustawia w grze pozycję zapisaną w notacji FEN.
+     *
+     * @param game Gra, w której zostanie ustawiona pozycja
+     * @param fen  Pozycja w notacji FEN
+     * @return true jeśli pozycja została poprawnie odczytana
+     */
+    public static boolean load(GameLogic game, String fen) {
+        try {
+            String[] sections = fen.trim().split(":");
+            if (sections.length < 1 || sections.length > 3) {
+                logger.error("Niepoprawny format FEN: " + fen);
+                return false;
+            }
+
+            boolean isWhiteTurn = parseColor(sections[0]);
+            int white = 0;
+            int black = 0;
+            int kings = 0;
+
+            for (int i = 1; i < sections.length; i++) {
+                String section = sections[i].trim();
+                if (section.isEmpty()) {
+                    continue;
+                }
+
+                boolean isWhite = parseColor(section.substring(0, 1));
+                String squares = section.substring(1).trim();
+                if (squares.isEmpty()) {
+                    continue;
+                }
+
+                for (String token : squares.split(",")) {
+                    token = token.trim();
+                    boolean isKing = token.startsWith("K");
+                    int square = Integer.parseInt(isKing ? token.substring(1) : token) - 1;
+                    if (square < 0 || square >= Bitboard.SQUARES) {
+                        logger.error("Pole spoza planszy w FEN: " + token);
+                        return false;
+                    }
+
+                    int bit = 1 << square;
+                    if (isWhite) {
+                        white |= bit;
+                    } else {
+                        black |= bit;
+                    }
+                    if (isKing) {
+                        kings |= bit;
+                    }
+                }
+            }
+
+            if ((white & black) != 0) {
+                logger.error("Pole zajęte przez obie strony w FEN: " + fen);
+                return false;
+            }
+
+            game.setPosition(white, black, kings, isWhiteTurn);
+            return true;
+        } catch (IllegalArgumentException | StringIndexOutOfBoundsException e) {
+            logger.error("Niepoprawny format FEN: " + fen, e);
+            return false;
+        }
+    }
+
+    /**
+     * Zapisuje aktualną pozycję gry w notacji FEN.
+     *
+     * @param game Gra, której pozycja zostanie zapisana
+     * @return Pozycja w notacji FEN
+     */
+    public static String format(GameLogic game) {
+        return format(game.isWhiteTurn(), game.getPieces(true), game.getPieces(false), game.getKings());
+    }
+
+    /**
+     * Zapisuje migawkę pozycji w notacji FEN.
+     *
+     * @param position Migawka pozycji
+     * @return Pozycja w notacji FEN
+     */
+    public static String format(Position position) {
+        return format(position.isWhiteTurn(), position.getWhite(), position.getBlack(), position.getKings());
+    }
+
+    private static String format(boolean isWhiteTurn, int white, int black, int kings) {
+        return (isWhiteTurn ? "W" : "B") + ":W" + formatSquares(white, kings) + ":B" + formatSquares(black, kings);
+    }
+
+    private static String formatSquares(int pieces, int kings) {
+        StringBuilder builder = new StringBuilder();
+        for (; pieces != 0; pieces &= pieces - 1) {
+            int square = Integer.numberOfTrailingZeros(pieces);
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            if ((kings & (1 << square)) != 0) {
+                builder.append('K');
+            }
+            builder.append(square + 1);
+        }
+        return builder.toString();
+    }
+
+    private static boolean parseColor(String color) {
+        switch (color.trim()) {
+            case "W":
+                return true;
+            case "B":
+                return false;
+            default:
+                throw new IllegalArgumentException("Nieznany kolor: " + color);
+        }
+    }
+}
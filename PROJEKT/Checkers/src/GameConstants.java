@@ -16,6 +16,7 @@ public class GameConstants {
     public static final Color HIGHLIGHT_COLOR = new Color(255, 255, 0, 100);
     public static final Color POSSIBLE_MOVE_COLOR = new Color(0, 255, 0, 100);
     public static final Color CAPTURE_HIGHLIGHT_COLOR = new Color(255, 0, 0, 100);
+    public static final Color ANALYSIS_ARROW_COLOR = new Color(0, 90, 255);
 
     // Czcionki
     public static final Font PIECE_KING_FONT = new Font("Arial", Font.BOLD, 24);
@@ -25,6 +26,22 @@ public class GameConstants {
     public static final Font DIALOG_CONTENT_FONT = new Font("Arial", Font.BOLD, 14);
     public static final Font BUTTON_FONT = new Font("Arial", Font.BOLD, 14);
     public static final Font NOTIFICATION_FONT = new Font("Arial", Font.BOLD, 14);
+    public static final Font ANALYSIS_FONT = new Font("Arial", Font.BOLD, 12);
+
+    // Stałe przeszukiwania ruchów komputera
+    public static final int AI_HASH_SIZE_MB = 32;
+    public static final int AI_SEARCH_THREADS = Runtime.getRuntime().availableProcessors();
+    public static final String AI_ENDGAME_DATABASE_FILE = "endgame.db";
+    public static final String AI_OPENING_BOOK_FILE = "opening.book";
+    public static final boolean AI_PONDERING = true;
+    public static final boolean AI_QUIESCENCE = true;
+    public static final boolean AI_FORCED_MOVE_EXTENSION = true;
+    public static final String AI_EVALUATION_FILE = "evaluation.properties";
+    public static final boolean AI_MCTS = false;
+    public static final int AI_ANALYSIS_LINES = 3;
+    public static final int AI_ANALYSIS_HASH_SIZE_MB = 16;
+    public static final int ANALYSIS_VARIATION_LENGTH = 8;
+    public static final int AI_MCTS_TREE_SIZE_MB = 64;
 
     // Stałe sieciowe
     public static final int SERVER_PORT = 5000;
@@ -54,6 +71,12 @@ public class GameConstants {
     public static final int NOTIFICATION_DURATION = 3000;
     public static final int PROMOTION_NOTIFICATION_DURATION = 2000;
     public static final int AI_MOVE_DELAY = 500;
+    public static final int AI_SEARCH_TIME = 500;
+    // Czas na partię komputera i przyrost po ruchu (0 - bez zegara, każdy ruch trwa AI_SEARCH_TIME)
+    public static final int AI_CLOCK_TIME = 60_000;
+    public static final int AI_CLOCK_INCREMENT = 1000;
+    // Narzut na ruch poza namysłem: opóźnienia i animacja kolejnych skoków bicia
+    public static final int AI_MOVE_OVERHEAD = 1000;
     public static final int VISUAL_MOVE_DELAY = 300;
     public static final int GAME_OVER_DIALOG_DURATION = 3000;
     public static final int CONNECT_WAIT_TIME = 1000;
@@ -69,6 +92,8 @@ public class GameConstants {
     public static final String NEW_GAME_BUTTON_TEXT = "Nowa gra";
     public static final String SURRENDER_BUTTON_TEXT = "Poddaj się";
     public static final String FLIP_BOARD_BUTTON_TEXT = "Obróć planszę";
+    public static final String ANALYSIS_BUTTON_TEXT = "Analiza";
+    public static final String ANALYSIS_STOP_BUTTON_TEXT = "Wyłącz analizę";
     public static final String CANCEL_BUTTON_TEXT = "Anuluj";
 
     // Wymiary UI
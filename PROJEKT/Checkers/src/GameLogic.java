@@ -1,19 +1,67 @@
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class GameLogic {
 
     private static final Logger logger = new Logger(GameLogic.class);
 
+    // Ustawienie początkowe: czarne w wierszach 0-2, białe w wierszach 5-7
+    private static final int INITIAL_BLACK = 0x00000FFF;
+    private static final int INITIAL_WHITE = 0xFFF00000;
+
+    // Flagi stanu zapisywane na stosie cofania
+    private static final int STATE_WHITE_TURN = 1;
+    private static final int STATE_CONTINUED_CAPTURE = 1 << 1;
+    private static final int STATE_REVERSIBLE = 1 << 2;
+    private static final int STATE_SQUARE_SHIFT = 3;
+
+    // Werdykt końca gry
+    private static final int VERDICT_NONE = 0;
+    private static final int VERDICT_WHITE_WINS = 1;
+    private static final int VERDICT_BLACK_WINS = 2;
+
     private final Piece[][] board;
+    private final Bitboard bitboard;
     private boolean isWhiteTurn;
     private boolean continuedCapture;
-    private Piece capturingPiece;
+    private int capturingSquare;
     private final List<Point> piecesCanCapture;
-    private boolean gameOver;
+    private final int[] moveBuffer = new int[Move.MAX_MOVES];
+    private int captureSources;
+
+    // Damki obu kolorów, które mogą bić; po ruchu sprawdzane są tylko te na przekątnych zmienionych pól
+    private int kingCaptureSources;
+    private int whiteCount;
+    private int blackCount;
+
+    // Werdykt końca gry zapamiętany dla pozycji o danym haszu
+    private long verdictHash;
+    private int verdict = -1;
+
+    // Stos cofania: ruch, stan sprzed ruchu, zbite damki, maska bić i maska bijących damek
+    private static final int UNDO_STRIDE = 5;
+    private int[] undoStack = new int[UNDO_STRIDE * 64];
+    private long[] hashStack = new long[64];
+    private int undoSize;
+
+    // Hasz Zobrista aktualnej pozycji, aktualizowany przyrostowo
+    private long hash;
+
+    // Statyczna ocena pozycji z punktu widzenia białych, aktualizowana przyrostowo
+    private Evaluation evaluation = Evaluation.DEFAULT;
+    private int score;
+
+    // Widok Piece[][] i lista bić są odświeżane leniwie po makeMove/unmakeMove
+    private boolean viewDirty;
+    private boolean piecesCanCaptureDirty;
+
+    // Migawka publikowana po ruchach z interfejsu i sieci; makeMove/unmakeMove jej nie zmieniają
+    private volatile Position position;
 
     public GameLogic() {
         board = new Piece[GameConstants.BOARD_SIZE][GameConstants.BOARD_SIZE];
+        bitboard = new Bitboard();
         piecesCanCapture = new ArrayList<>();
         resetGame();
     }
@@ -21,23 +69,142 @@ public class GameLogic {
     public void resetGame() {
         logger.info("Resetowanie gry");
         initializeBoard();
-        isWhiteTurn = true;
+        resetState(true);
+    }
+
+    public void setPosition(int white, int black, int kings, boolean isWhiteTurn) {
+        logger.debug("Ustawianie pozycji");
+        bitboard.set(white, black & ~white, kings);
+        rebuildView();
+        resetState(isWhiteTurn);
+    }
+
+    private void resetState(boolean isWhiteTurn) {
+        this.isWhiteTurn = isWhiteTurn;
         continuedCapture = false;
-        capturingPiece = null;
-        gameOver = false;
+        capturingSquare = -1;
+        undoSize = 0;
+        hash = Zobrist.hash(bitboard, isWhiteTurn, capturingSquare);
+        score = evaluation.evaluate(bitboard);
         updatePiecesCanCapture();
+        publishPosition(Move.NONE);
+    }
+
+    /**
+     * Kopiuje stan innej gry razem z historią ruchów potrzebną do wykrywania
+     * powtórzeń, np. dla wątków przeszukiwania równoległego. Widok Piece[][]
+     * jest budowany od nowa przy pierwszym odczycie.
+     */
+    public void copyFrom(GameLogic other) {
+        bitboard.set(other.bitboard.getWhite(), other.bitboard.getBlack(), other.bitboard.getKings());
+        isWhiteTurn = other.isWhiteTurn;
+        continuedCapture = other.continuedCapture;
+        capturingSquare = other.capturingSquare;
+        captureSources = other.captureSources;
+        kingCaptureSources = other.kingCaptureSources;
+        whiteCount = other.whiteCount;
+        blackCount = other.blackCount;
+        hash = other.hash;
+        evaluation = other.evaluation;
+        score = other.score;
+        verdict = -1;
+
+        if (undoStack.length < other.undoSize) {
+            undoStack = new int[other.undoStack.length];
+            hashStack = new long[other.hashStack.length];
+        }
+        System.arraycopy(other.undoStack, 0, undoStack, 0, other.undoSize);
+        System.arraycopy(other.hashStack, 0, hashStack, 0, other.undoSize / UNDO_STRIDE);
+        undoSize = other.undoSize;
+
+        position = other.position;
+        viewDirty = true;
+        piecesCanCaptureDirty = true;
     }
 
     public Piece[][] getBoard() {
+        if (viewDirty) {
+            syncView();
+        }
         return board;
     }
 
+    public int getPieces(boolean isWhite) {
+        return bitboard.getPieces(isWhite);
+    }
+
+    public int getKings() {
+        return bitboard.getKings();
+    }
+
     public boolean isWhiteTurn() {
         return isWhiteTurn;
     }
 
     public void setWhiteTurn(boolean isWhiteTurn) {
+        if (this.isWhiteTurn == isWhiteTurn) {
+            return;
+        }
         this.isWhiteTurn = isWhiteTurn;
+        hash ^= Zobrist.BLACK_TO_MOVE;
+        captureSources = bitboard.getCaptureSources(isWhiteTurn);
+        piecesCanCaptureDirty = true;
+        publishPosition(Move.NONE);
+    }
+
+    /**
+     * Zwraca ostatnio opublikowaną, niezmienną migawkę pozycji. Można ją
+     * bezpiecznie czytać z dowolnego wątku.
+     */
+    public Position getPosition() {
+        return position;
+    }
+
+    private void publishPosition(int lastMove) {
+        position = new Position(bitboard.getWhite(), bitboard.getBlack(), bitboard.getKings(), isWhiteTurn,
+                capturingSquare, captureSources, lastMove, hash);
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Ustawia wagi oceny pozycji i przelicza ocenę aktualnej pozycji.
+     */
+    public void setEvaluation(Evaluation evaluation) {
+        this.evaluation = evaluation;
+        score = evaluation.evaluate(bitboard);
+    }
+
+    public Evaluation getEvaluation() {
+        return evaluation;
+    }
+
+    /**
+     * Zwraca statyczną ocenę pozycji z punktu widzenia strony na posunięciu.
+     * Ocena jest aktualizowana przy każdym ruchu, więc jej odczyt nie
+     * wymaga przeglądania planszy.
+     */
+    public int getScore() {
+        return isWhiteTurn ? score : -score;
+    }
+
+    /**
+     * Zwraca, ile razy aktualna pozycja wystąpiła już wcześniej od ostatniego
+     * nieodwracalnego ruchu (ruchu pionkiem lub bicia).
+     */
+    public int getRepetitionCount() {
+        int repetitions = 0;
+        for (int entry = undoSize - UNDO_STRIDE; entry >= 0; entry -= UNDO_STRIDE) {
+            if ((undoStack[entry + 1] & STATE_REVERSIBLE) == 0) {
+                break;
+            }
+            if (hashStack[entry / UNDO_STRIDE] == hash) {
+                repetitions++;
+            }
+        }
+        return repetitions;
     }
 
     public boolean isContinuedCapture() {
@@ -45,41 +212,72 @@ public class GameLogic {
     }
 
     public Piece getCapturingPiece() {
-        return capturingPiece;
+        if (!continuedCapture) {
+            return null;
+        }
+        return getBoard()[Bitboard.row(capturingSquare)][Bitboard.col(capturingSquare)];
     }
 
     public List<Point> getPiecesCanCapture() {
+        if (piecesCanCaptureDirty) {
+            piecesCanCapture.clear();
+            addPoints(captureSources, piecesCanCapture);
+            piecesCanCaptureDirty = false;
+        }
         return piecesCanCapture;
     }
 
     public boolean isGameOver() {
-        return gameOver;
+        return getVerdict() != VERDICT_NONE;
+    }
+
+    public int getPieceCount(boolean isWhite) {
+        return isWhite ? whiteCount : blackCount;
     }
 
     private void initializeBoard() {
         logger.debug("Inicjalizacja planszy");
+        bitboard.set(INITIAL_WHITE, INITIAL_BLACK, 0);
+        rebuildView();
+        logger.debug("Plansza zainicjalizowana");
+    }
+
+    private void rebuildView() {
         for (int row = 0; row < GameConstants.BOARD_SIZE; row++) {
             for (int col = 0; col < GameConstants.BOARD_SIZE; col++) {
                 board[row][col] = null;
             }
         }
 
-        for (int row = 0; row < 3; row++) {
-            for (int col = 0; col < GameConstants.BOARD_SIZE; col++) {
-                if ((row + col) % 2 == 1) {
-                    board[row][col] = new Piece(false, row, col);
-                }
-            }
+        for (int pieces = bitboard.getOccupied(); pieces != 0; pieces &= pieces - 1) {
+            int square = Integer.numberOfTrailingZeros(pieces);
+            int row = Bitboard.row(square);
+            int col = Bitboard.col(square);
+            Piece piece = new Piece(bitboard.isWhite(square), row, col);
+            piece.setKing(bitboard.isKing(square));
+            board[row][col] = piece;
         }
+        viewDirty = false;
+    }
 
-        for (int row = 5; row < 8; row++) {
-            for (int col = 0; col < GameConstants.BOARD_SIZE; col++) {
-                if ((row + col) % 2 == 1) {
-                    board[row][col] = new Piece(true, row, col);
-                }
+    private void syncView() {
+        for (int square = 0; square < Bitboard.SQUARES; square++) {
+            int row = Bitboard.row(square);
+            int col = Bitboard.col(square);
+            Piece piece = board[row][col];
+
+            if (!bitboard.isOccupied(square)) {
+                board[row][col] = null;
+                continue;
             }
+
+            if (piece == null || piece.isWhite() != bitboard.isWhite(square)) {
+                piece = new Piece(bitboard.isWhite(square), row, col);
+                board[row][col] = piece;
+            }
+            piece.setKing(bitboard.isKing(square));
         }
-        logger.debug("Plansza zainicjalizowana");
+        viewDirty = false;
     }
 
     public List<Point> calculatePossibleMoves(Piece piece) {
@@ -88,42 +286,19 @@ public class GameLogic {
             return possibleMoves;
         }
 
-        int row = piece.getRow();
-        int col = piece.getCol();
-        boolean isWhite = piece.isWhite();
-        boolean isKing = piece.isKing();
+        int square = Bitboard.square(piece.getRow(), piece.getCol());
+        int captures = bitboard.getCaptureTargets(square);
 
-        List<Point> captures = new ArrayList<>();
-        checkCaptures(piece, captures);
-
-        if (!captures.isEmpty()) {
-            possibleMoves.addAll(captures);
+        if (captures != 0) {
+            addPoints(captures, possibleMoves);
             return possibleMoves;
         }
 
-        if (!piecesCanCapture.isEmpty()) {
+        if (captureSources != 0) {
             return possibleMoves;
         }
 
-        if (!isKing) {
-            int direction = isWhite ? -1 : 1;
-
-            if (col > 0 && row + direction >= 0 && row + direction < GameConstants.BOARD_SIZE) {
-                if (board[row + direction][col - 1] == null) {
-                    possibleMoves.add(new Point(col - 1, row + direction));
-                }
-            }
-
-            if (col < GameConstants.BOARD_SIZE - 1 && row + direction >= 0
-                    && row + direction < GameConstants.BOARD_SIZE) {
-                if (board[row + direction][col + 1] == null) {
-                    possibleMoves.add(new Point(col + 1, row + direction));
-                }
-            }
-        } else {
-            checkKingMoves(row, col, possibleMoves);
-        }
-
+        addPoints(bitboard.getQuietTargets(square), possibleMoves);
         return possibleMoves;
     }
 
@@ -132,81 +307,93 @@ public class GameLogic {
             return;
         }
 
-        int row = piece.getRow();
-        int col = piece.getCol();
-        boolean isKing = piece.isKing();
+        int square = Bitboard.square(piece.getRow(), piece.getCol());
+        addPoints(bitboard.getCaptureTargets(square), captures);
+    }
 
-        if (!isKing) {
-            checkCapture(piece, row + 1, col - 1, row + 2, col - 2, captures);
-            checkCapture(piece, row + 1, col + 1, row + 2, col + 2, captures);
-            checkCapture(piece, row - 1, col - 1, row - 2, col - 2, captures);
-            checkCapture(piece, row - 1, col + 1, row - 2, col + 2, captures);
-        } else {
-            checkKingCaptures(piece, row, col, captures);
+    public int generateMoves(int[] moves) {
+        if (continuedCapture) {
+            return bitboard.generateCaptures(capturingSquare, moves, 0);
         }
+
+        if (captureSources != 0) {
+            return bitboard.generateCaptures(isWhiteTurn, moves, 0);
+        }
+        return bitboard.generateQuietMoves(isWhiteTurn, moves, 0);
     }
 
-    private void checkCapture(Piece piece, int midRow, int midCol, int endRow, int endCol, List<Point> captures) {
-        if (endRow >= 0 && endRow < GameConstants.BOARD_SIZE && endCol >= 0 && endCol < GameConstants.BOARD_SIZE) {
-            if (midRow >= 0 && midRow < GameConstants.BOARD_SIZE && midCol >= 0 && midCol < GameConstants.BOARD_SIZE) {
-                Piece midPiece = board[midRow][midCol];
-                if (midPiece != null && midPiece.isWhite() != piece.isWhite() && board[endRow][endCol] == null) {
-                    captures.add(new Point(endCol, endRow));
-                }
+    public int generateFullMoves(int[] moves) {
+        if (continuedCapture) {
+            return bitboard.generateCapturePaths(capturingSquare, moves, 0);
+        }
+
+        if (captureSources != 0) {
+            int count = 0;
+            for (int sources = captureSources; sources != 0; sources &= sources - 1) {
+                count = bitboard.generateCapturePaths(Integer.numberOfTrailingZeros(sources), moves, count);
             }
+            return count;
         }
+        return bitboard.generateQuietMoves(isWhiteTurn, moves, 0);
     }
 
-    private void checkKingMoves(int row, int col, List<Point> possibleMoves) {
-        checkDiagonalMoves(row, col, -1, -1, possibleMoves);
-        checkDiagonalMoves(row, col, -1, 1, possibleMoves);
-        checkDiagonalMoves(row, col, 1, -1, possibleMoves);
-        checkDiagonalMoves(row, col, 1, 1, possibleMoves);
+    public int expandMove(int move, int[] hops) {
+        return bitboard.expandPath(move, hops);
     }
 
-    private void checkDiagonalMoves(int row, int col, int rowDir, int colDir, List<Point> possibleMoves) {
-        int r = row + rowDir;
-        int c = col + colDir;
-        while (r >= 0 && r < GameConstants.BOARD_SIZE && c >= 0 && c < GameConstants.BOARD_SIZE) {
-            if (board[r][c] == null) {
-                possibleMoves.add(new Point(c, r));
-            } else {
-                break;
+    public boolean isLegalMove(int move) {
+        int count = generateFullMoves(moveBuffer);
+        for (int i = 0; i < count; i++) {
+            if (moveBuffer[i] == move) {
+                return true;
             }
-            r += rowDir;
-            c += colDir;
         }
+        return false;
     }
 
-    private void checkKingCaptures(Piece piece, int row, int col, List<Point> captures) {
-        checkDiagonalCaptures(piece, row, col, -1, -1, captures);
-        checkDiagonalCaptures(piece, row, col, -1, 1, captures);
-        checkDiagonalCaptures(piece, row, col, 1, -1, captures);
-        checkDiagonalCaptures(piece, row, col, 1, 1, captures);
-    }
+    public boolean playMove(int move) {
+        if (!isLegalMove(move)) {
+            logger.error("Niedozwolony ruch: " + Move.toString(move));
+            return false;
+        }
 
-    private void checkDiagonalCaptures(Piece piece, int row, int col, int rowDir, int colDir, List<Point> captures) {
-        int r = row + rowDir;
-        int c = col + colDir;
-        boolean foundOpponent = false;
+        logger.info("Wykonuję ruch " + Move.toString(move) + " (zbite bierki: " + Move.captureCount(move) + ")");
 
-        while (r >= 0 && r < GameConstants.BOARD_SIZE && c >= 0 && c < GameConstants.BOARD_SIZE) {
-            if (board[r][c] == null) {
-                if (foundOpponent) {
-                    captures.add(new Point(c, r));
-                    r += rowDir;
-                    c += colDir;
-                    continue;
-                }
-                r += rowDir;
-                c += colDir;
-            } else if (!foundOpponent && board[r][c].isWhite() != piece.isWhite()) {
-                foundOpponent = true;
-                r += rowDir;
-                c += colDir;
-            } else {
-                break;
-            }
+        if (viewDirty) {
+            syncView();
+        }
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        Piece piece = board[Bitboard.row(from)][Bitboard.col(from)];
+        for (int captured = Move.captured(move); captured != 0; captured &= captured - 1) {
+            int square = Integer.numberOfTrailingZeros(captured);
+            board[Bitboard.row(square)][Bitboard.col(square)] = null;
+        }
+
+        board[Bitboard.row(from)][Bitboard.col(from)] = null;
+        piece.setPosition(Bitboard.row(to), Bitboard.col(to));
+        board[Bitboard.row(to)][Bitboard.col(to)] = piece;
+
+        if (Move.isPromotion(move)) {
+            piece.setKing(true);
+            logger.info("Pionek został promowany do damy");
+        }
+
+        pushUndo(move);
+        applyMove(move);
+        publishPosition(move);
+
+        if (isGameOver()) {
+            logger.info("Koniec gry! Zwycięzca: " + getWinner());
+        }
+        return true;
+    }
+
+    private void addPoints(int squares, List<Point> points) {
+        for (; squares != 0; squares &= squares - 1) {
+            int square = Integer.numberOfTrailingZeros(squares);
+            points.add(new Point(Bitboard.col(square), Bitboard.row(square)));
         }
     }
 
@@ -226,157 +413,265 @@ public class GameLogic {
             return false;
         }
 
-        if (board[newRow][newCol] != null) {
+        int from = Bitboard.square(oldRow, oldCol);
+        int to = Bitboard.square(newRow, newCol);
+        if (from < 0 || to < 0) {
+            logger.error("Ruch poza ciemnymi polami planszy");
+            return false;
+        }
+
+        if (bitboard.isOccupied(to)) {
             logger.error("Miejsce docelowe jest już zajęte");
             return false;
         }
 
-        boolean capturePerformed = false;
+        int captured = -1;
 
         if (Math.abs(newRow - oldRow) == 2 && Math.abs(newCol - oldCol) == 2) {
-            int capturedRow = (newRow + oldRow) / 2;
-            int capturedCol = (newCol + oldCol) / 2;
-            if (board[capturedRow][capturedCol] != null
-                    && board[capturedRow][capturedCol].isWhite() != piece.isWhite()) {
-                logger.info("Bicie pionka na (" + capturedCol + "," + capturedRow + ")");
-                board[capturedRow][capturedCol] = null;
-                capturePerformed = true;
+            int middle = Bitboard.square((newRow + oldRow) / 2, (newCol + oldCol) / 2);
+            if (bitboard.isOccupied(middle) && bitboard.isWhite(middle) != piece.isWhite()) {
+                captured = middle;
             }
         } else if (piece.isKing() && Math.abs(newRow - oldRow) > 1) {
-            int rowDir = Integer.compare(newRow, oldRow);
-            int colDir = Integer.compare(newCol, oldCol);
-            int r = oldRow + rowDir;
-            int c = oldCol + colDir;
-
-            boolean foundOpponent = false;
-            while (r != newRow || c != newCol) {
-                if (board[r][c] != null) {
-                    if (!foundOpponent && board[r][c].isWhite() != piece.isWhite()) {
-                        board[r][c] = null;
-                        capturePerformed = true;
-                        foundOpponent = true;
+            int direction = newRow < oldRow
+                    ? (newCol < oldCol ? Bitboard.UP_LEFT : Bitboard.UP_RIGHT)
+                    : (newCol < oldCol ? Bitboard.DOWN_LEFT : Bitboard.DOWN_RIGHT);
+
+            for (int current = Bitboard.neighbor(from, direction); current != to;
+                    current = Bitboard.neighbor(current, direction)) {
+                if (current < 0) {
+                    logger.error("Ruch damki nie leży na przekątnej");
+                    return false;
+                }
+                if (bitboard.isOccupied(current)) {
+                    if (captured < 0 && bitboard.isWhite(current) != piece.isWhite()) {
+                        captured = current;
                     } else {
                         return false;
                     }
                 }
-                r += rowDir;
-                c += colDir;
             }
         }
 
+        if (viewDirty) {
+            syncView();
+        }
+
+        boolean capturePerformed = captured >= 0;
+        boolean promotion = !piece.isKing() && (Bitboard.promotionRow(piece.isWhite()) & (1 << to)) != 0;
+
+        if (capturePerformed) {
+            logger.info("Bicie pionka na (" + Bitboard.col(captured) + "," + Bitboard.row(captured) + ")");
+            board[Bitboard.row(captured)][Bitboard.col(captured)] = null;
+        }
+
         board[oldRow][oldCol] = null;
         piece.setPosition(newRow, newCol);
         board[newRow][newCol] = piece;
 
-        if (!piece.isKing()) {
-            if ((piece.isWhite() && newRow == 0) || (!piece.isWhite() && newRow == GameConstants.BOARD_SIZE - 1)) {
-                piece.setKing(true);
-                logger.info("Pionek został promowany do damy");
-            }
+        if (promotion) {
+            piece.setKing(true);
+            logger.info("Pionek został promowany do damy");
         }
 
-        continuedCapture = false;
-        capturingPiece = null;
-
-        if (capturePerformed) {
-            List<Point> furtherCaptures = new ArrayList<>();
-            checkCaptures(piece, furtherCaptures);
+        int move = Move.of(from, to, capturePerformed ? 1 << captured : 0, promotion);
+        pushUndo(move);
+        applyMove(move);
+        publishPosition(move);
 
-            if (!furtherCaptures.isEmpty()) {
-                logger.info("Możliwe dalsze bicie");
-                continuedCapture = true;
-                capturingPiece = piece;
-                return true;
-            }
+        if (continuedCapture) {
+            logger.info("Możliwe dalsze bicie");
+            return true;
         }
 
-        isWhiteTurn = !isWhiteTurn;
-        updatePiecesCanCapture();
-        checkGameOver();
+        if (captureSources != 0) {
+            logger.debug("Znaleziono " + Integer.bitCount(captureSources) + " pionków, które mogą wykonać bicie");
+        }
+        if (isGameOver()) {
+            logger.info("Koniec gry! Zwycięzca: " + getWinner());
+        }
 
         return true;
     }
 
-    public void updatePiecesCanCapture() {
-        piecesCanCapture.clear();
+    public void makeMove(int move) {
+        pushUndo(move);
+        applyMove(move);
+        viewDirty = true;
+    }
 
-        for (int row = 0; row < GameConstants.BOARD_SIZE; row++) {
-            for (int col = 0; col < GameConstants.BOARD_SIZE; col++) {
-                Piece piece = board[row][col];
-                if (piece != null && piece.isWhite() == isWhiteTurn) {
-                    List<Point> captures = new ArrayList<>();
-                    checkCaptures(piece, captures);
+    public boolean unmakeMove() {
+        if (undoSize == 0) {
+            logger.error("Brak ruchu do cofnięcia");
+            return false;
+        }
 
-                    if (!captures.isEmpty()) {
-                        piecesCanCapture.add(new Point(col, row));
-                    }
-                }
-            }
+        undoSize -= UNDO_STRIDE;
+        int move = undoStack[undoSize];
+        int state = undoStack[undoSize + 1];
+        int capturedKings = undoStack[undoSize + 2];
+        int from = Move.from(move);
+        int to = Move.to(move);
+        boolean isWhite = bitboard.isWhite(to);
+        boolean isKing = bitboard.isKing(to);
+        boolean wasKing = isKing && !Move.isPromotion(move);
+
+        score -= evaluation.value(to, isWhite, isKing) - evaluation.value(from, isWhite, wasKing);
+        int captured = Move.captured(move);
+        for (int pieces = captured; pieces != 0; pieces &= pieces - 1) {
+            int square = Integer.numberOfTrailingZeros(pieces);
+            score += evaluation.value(square, !isWhite, (capturedKings & (1 << square)) != 0);
         }
 
-        if (!piecesCanCapture.isEmpty()) {
-            logger.debug("Znaleziono " + piecesCanCapture.size() + " pionków, które mogą wykonać bicie");
+        bitboard.remove(to);
+        bitboard.put(from, isWhite, wasKing);
+        bitboard.place(captured, !isWhite, capturedKings);
+        if (isWhite) {
+            blackCount += Integer.bitCount(captured);
+        } else {
+            whiteCount += Integer.bitCount(captured);
         }
+
+        isWhiteTurn = (state & STATE_WHITE_TURN) != 0;
+        continuedCapture = (state & STATE_CONTINUED_CAPTURE) != 0;
+        capturingSquare = (state >>> STATE_SQUARE_SHIFT) - 1;
+        captureSources = undoStack[undoSize + 3];
+        kingCaptureSources = undoStack[undoSize + 4];
+        hash = hashStack[undoSize / UNDO_STRIDE];
+
+        viewDirty = true;
+        piecesCanCaptureDirty = true;
+        return true;
     }
 
-    public void checkGameOver() {
-        if (gameOver) {
+    private void pushUndo(int move) {
+        if (undoSize == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoStack.length * 2);
+            hashStack = Arrays.copyOf(hashStack, hashStack.length * 2);
+        }
+
+        boolean reversible = !Move.isCapture(move) && bitboard.isKing(Move.from(move));
+        int state = (isWhiteTurn ? STATE_WHITE_TURN : 0)
+                | (continuedCapture ? STATE_CONTINUED_CAPTURE : 0)
+                | (reversible ? STATE_REVERSIBLE : 0)
+                | ((capturingSquare + 1) << STATE_SQUARE_SHIFT);
+
+        undoStack[undoSize] = move;
+        undoStack[undoSize + 1] = state;
+        undoStack[undoSize + 2] = Move.captured(move) & bitboard.getKings();
+        undoStack[undoSize + 3] = captureSources;
+        undoStack[undoSize + 4] = kingCaptureSources;
+        hashStack[undoSize / UNDO_STRIDE] = hash;
+        undoSize += UNDO_STRIDE;
+    }
+
+    private void applyMove(int move) {
+        int captured = Move.captured(move);
+        int from = Move.from(move);
+        int to = Move.to(move);
+        boolean isWhite = bitboard.isWhite(from);
+        boolean wasKing = bitboard.isKing(from);
+        boolean isKing = wasKing || Move.isPromotion(move);
+
+        hash ^= Zobrist.piece(from, isWhite, wasKing) ^ Zobrist.piece(to, isWhite, isKing);
+        score += evaluation.value(to, isWhite, isKing) - evaluation.value(from, isWhite, wasKing);
+        int capturedKings = captured & bitboard.getKings();
+        for (int pieces = captured; pieces != 0; pieces &= pieces - 1) {
+            int square = Integer.numberOfTrailingZeros(pieces);
+            boolean capturedKing = (capturedKings & (1 << square)) != 0;
+            hash ^= Zobrist.piece(square, !isWhite, capturedKing);
+            score -= evaluation.value(square, !isWhite, capturedKing);
+        }
+
+        bitboard.removeAll(captured);
+        bitboard.remove(from);
+        bitboard.put(to, isWhite, isKing);
+        if (isWhite) {
+            blackCount -= Integer.bitCount(captured);
+        } else {
+            whiteCount -= Integer.bitCount(captured);
+        }
+        updateKingCaptureSources((1 << from) | (1 << to) | captured);
+
+        if (continuedCapture) {
+            hash ^= Zobrist.continuation(capturingSquare);
+        }
+        continuedCapture = false;
+        capturingSquare = -1;
+
+        if (captured != 0 && bitboard.getCaptureTargets(to) != 0) {
+            continuedCapture = true;
+            capturingSquare = to;
+            hash ^= Zobrist.continuation(to);
             return;
         }
 
-        boolean[] gameState = checkGameState();
-        boolean whiteExists = gameState[0];
-        boolean blackExists = gameState[1];
-        boolean canMove = gameState[2];
+        isWhiteTurn = !isWhiteTurn;
+        hash ^= Zobrist.BLACK_TO_MOVE;
+        captureSources = bitboard.getMenCaptureSources(isWhiteTurn)
+                | (kingCaptureSources & bitboard.getPieces(isWhiteTurn));
+        piecesCanCaptureDirty = true;
+    }
 
-        if (!whiteExists || !blackExists || !canMove) {
-            gameOver = true;
-            logger.info("Koniec gry! Zwycięzca: " + getWinner());
+    private void updateKingCaptureSources(int touched) {
+        int affected = 0;
+        for (int squares = touched; squares != 0; squares &= squares - 1) {
+            int square = Integer.numberOfTrailingZeros(squares);
+            affected |= Bitboard.diagonals(square);
         }
+        affected = (affected | touched) & bitboard.getKings();
+
+        kingCaptureSources = (kingCaptureSources & bitboard.getKings() & ~affected)
+                | bitboard.getKingCaptureSources(affected);
     }
 
-    public String getWinner() {
-        boolean[] gameState = checkGameState();
-        boolean whiteExists = gameState[0];
-        boolean blackExists = gameState[1];
-        boolean canMove = gameState[2];
+    public void updatePiecesCanCapture() {
+        whiteCount = Integer.bitCount(bitboard.getWhite());
+        blackCount = Integer.bitCount(bitboard.getBlack());
+        kingCaptureSources = bitboard.getKingCaptureSources(bitboard.getKings());
+        captureSources = bitboard.getCaptureSources(isWhiteTurn);
+        piecesCanCapture.clear();
+        addPoints(captureSources, piecesCanCapture);
+        piecesCanCaptureDirty = false;
 
-        if (!whiteExists) {
-            return "Czarne";
-        } else if (!blackExists) {
-            return "Białe";
-        } else if (!canMove) {
-            return isWhiteTurn ? "Czarne" : "Białe";
+        if (!piecesCanCapture.isEmpty()) {
+            logger.debug("Znaleziono " + piecesCanCapture.size() + " pionków, które mogą wykonać bicie");
         }
-
-        return null;
     }
 
-    private boolean[] checkGameState() {
-        boolean whiteExists = false;
-        boolean blackExists = false;
-        boolean canMove = false;
+    public void checkGameOver() {
+        if (isGameOver()) {
+            logger.info("Koniec gry! Zwycięzca: " + getWinner());
+        }
+    }
 
-        for (int row = 0; row < GameConstants.BOARD_SIZE; row++) {
-            for (int col = 0; col < GameConstants.BOARD_SIZE; col++) {
-                Piece piece = board[row][col];
-                if (piece != null) {
-                    if (piece.isWhite()) {
-                        whiteExists = true;
-                    } else {
-                        blackExists = true;
-                    }
+    public String getWinner() {
+        switch (getVerdict()) {
+            case VERDICT_WHITE_WINS:
+                return "Białe";
+            case VERDICT_BLACK_WINS:
+                return "Czarne";
+            default:
+                return null;
+        }
+    }
 
-                    if (piece.isWhite() == isWhiteTurn) {
-                        List<Point> moves = calculatePossibleMoves(piece);
-                        if (!moves.isEmpty()) {
-                            canMove = true;
-                        }
-                    }
-                }
-            }
+    private int getVerdict() {
+        if (verdict < 0 || verdictHash != hash) {
+            verdict = computeVerdict();
+            verdictHash = hash;
         }
+        return verdict;
+    }
 
-        return new boolean[] { whiteExists, blackExists, canMove };
+    private int computeVerdict() {
+        if (whiteCount == 0) {
+            return VERDICT_BLACK_WINS;
+        } else if (blackCount == 0) {
+            return VERDICT_WHITE_WINS;
+        } else if (continuedCapture || captureSources != 0 || bitboard.getQuietSources(isWhiteTurn) != 0) {
+            return VERDICT_NONE;
+        }
+        return isWhiteTurn ? VERDICT_BLACK_WINS : VERDICT_WHITE_WINS;
     }
 }
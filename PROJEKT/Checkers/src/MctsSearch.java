@@ -0,0 +1,539 @@
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Przeszukiwanie drzewa metodą Monte Carlo (MCTS) bez funkcji oceny. Węzły
+ * są wybierane według wzoru UCT, a pozycja w liściu jest oceniana losową
+ * rozgrywką do końca gry z ruchami z {@link GameLogic#generateFullMoves},
+ * więc obowiązek bicia jest zachowany.
+ * <p>
+ * Rozgrywki biegną równolegle w wątkach wirtualnych, każdy na własnej kopii
+ * gry, i dzielą jedno drzewo bez blokad. Statystyki węzłów są licznikami
+ * atomowymi, a dzieci węzła rozwija jeden wątek, który przejął go operacją
+ * compare-and-set. Wątek schodzący przez węzeł dolicza mu tymczasowo
+ * przegrane (wirtualna strata), żeby pozostałe wątki wybierały inne
+ * gałęzie, i cofa je po zapisaniu wyniku rozgrywki.
+ * <p>
+ * Węzły leżą w tablicach o stałej pojemności przydzielanych raz i używanych
+ * ponownie w każdym przeszukiwaniu, więc zużycie pamięci jest ograniczone.
+ * Po zapełnieniu tablic drzewo przestaje rosnąć, a rozgrywki startują z
+ * dotychczasowych liści.
+ * <p>
+ * Jeśli nowa pozycja leży w drzewie poprzedniego przeszukiwania najwyżej
+ * dwa ruchy pod korzeniem (wybrany ruch i odpowiedź przeciwnika albo ruch
+ * przeciwnika po namyśle w jego czasie), jej poddrzewo jest zachowywane
+ * razem ze statystykami, a reszta węzłów jest odzyskiwana. Dzieci węzła
+ * zawsze leżą dalej w tablicach niż on sam, więc poddrzewo jest zsuwane na
+ * początek tablic w kolejności indeksów, a nowy korzeń trafia na miejsce
+ * starego.
+ */
+public class MctsSearch implements MoveStrategy {
+
+    private static final Logger logger = new Logger(MctsSearch.class);
+
+    // Tablice węzła: ruch, pierwsze dziecko, liczba dzieci, stan, odwiedziny, punkty i nowy indeks
+    private static final int NODE_BYTES = 7 * Integer.BYTES;
+
+    private static final int ROOT = 0;
+
+    // Stany węzła
+    private static final int LEAF = 0;
+    private static final int EXPANDING = 1;
+    private static final int EXPANDED = 2;
+
+    // Nowy indeks węzła spoza zachowywanego poddrzewa
+    private static final int DISCARDED = -1;
+
+    // Największa liczba ruchów od poprzedniego korzenia do nowej pozycji
+    private static final int MAX_REUSE_PLIES = 2;
+
+    private static final double EXPLORATION = 1.4;
+    private static final int VIRTUAL_LOSS = 3;
+
+    // Punkty za wynik rozgrywki z punktu widzenia strony, która wykonała ruch do węzła
+    private static final int WIN_POINTS = 2;
+    private static final int DRAW_POINTS = 1;
+
+    // Rozgrywka dłuższa niż limit jest remisem
+    private static final int MAX_PLAYOUT_PLIES = 200;
+    private static final int MAX_TREE_DEPTH = 128;
+
+    // Ocena przekazywana odbiorcy postępu: (2 * udział wygranych - 1) * SCORE_SCALE
+    private static final int SCORE_SCALE = 1000;
+    private static final long REPORT_INTERVAL_MILLIS = 100;
+
+    private final long timeBudgetMillis;
+    private final int threads;
+    private final GameLogic[] workerGames;
+
+    private final int capacity;
+    private final int[] moves;
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final AtomicIntegerArray states;
+    private final AtomicIntegerArray visits;
+    private final AtomicIntegerArray points;
+    private final int[] relocated;
+    private final AtomicInteger nextFree = new AtomicInteger();
+    private final int[] rootMoves = new int[Move.MAX_MOVES];
+
+    // Pozycja w korzeniu drzewa po ostatnim przeszukiwaniu, jeśli drzewo nadaje się do ponownego użycia
+    private final GameLogic rootGame = new GameLogic();
+    private boolean reusable;
+
+    // Drzewo zapełniło się w bieżącym przeszukiwaniu i nie jest już rozwijane
+    private volatile boolean full;
+
+    private final LongAdder playouts = new LongAdder();
+    private volatile SearchStatistics lastStatistics;
+    private long deadline;
+    private volatile boolean stopRequested;
+    private volatile SearchListener listener;
+
+    // Przewidywana odpowiedź przeciwnika na wybrany ruch i hasz pozycji po wybranym ruchu
+    private long predictedHash;
+    private int predictedMove = Move.NONE;
+
+    /**
+     * @param timeBudgetMillis Limit czasu na jeden ruch w milisekundach
+     * @param threads          Liczba wątków wirtualnych wykonujących rozgrywki
+     * @param sizeMb           Rozmiar drzewa w megabajtach
+     */
+    public MctsSearch(long timeBudgetMillis, int threads, int sizeMb) {
+        if (threads < 1) {
+            logger.warning("Niepoprawna liczba wątków MCTS: " + threads + ", używam 1");
+            threads = 1;
+        }
+
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.threads = threads;
+        workerGames = new GameLogic[threads - 1];
+        for (int i = 0; i < workerGames.length; i++) {
+            workerGames[i] = new GameLogic();
+        }
+
+        capacity = (int) Math.min((long) sizeMb * 1024 * 1024 / NODE_BYTES, Integer.MAX_VALUE);
+        moves = new int[capacity];
+        firstChild = new int[capacity];
+        childCount = new int[capacity];
+        states = new AtomicIntegerArray(capacity);
+        visits = new AtomicIntegerArray(capacity);
+        points = new AtomicIntegerArray(capacity);
+        relocated = new int[capacity];
+        logger.info("MCTS: " + threads + " wątków, " + capacity + " węzłów");
+    }
+
+    @Override
+    public int selectMove(GameLogic game) {
+        return run(game, System.nanoTime() + timeBudgetMillis * 1_000_000L);
+    }
+
+    /**
+     * Rozgrywki trwają przez czas docelowy; wydłużanie namysłu dotyczy tylko
+     * przeszukiwania alfa-beta.
+     */
+    @Override
+    public int selectMove(GameLogic game, long targetMillis, long maxMillis) {
+        return run(game, System.nanoTime() + targetMillis * 1_000_000L);
+    }
+
+    /**
+     * Wykonuje rozgrywki aż do wywołania {@link #stop()}.
+     */
+    @Override
+    public int ponder(GameLogic game) {
+        return run(game, Long.MAX_VALUE);
+    }
+
+    @Override
+    public int predictMove(GameLogic game) {
+        if (predictedMove == Move.NONE || game.getHash() != predictedHash) {
+            return Move.NONE;
+        }
+        return game.isLegalMove(predictedMove) ? predictedMove : Move.NONE;
+    }
+
+    private int run(GameLogic game, long deadline) {
+        this.deadline = deadline;
+        playouts.reset();
+        predictedMove = Move.NONE;
+        lastStatistics = null;
+        long start = System.nanoTime();
+
+        int reused = reuseSubtree(game);
+        if (reused == 0) {
+            nextFree.set(ROOT + 1);
+            resetNode(ROOT, Move.NONE);
+        }
+        full = false;
+        reusable = false;
+
+        // Korzeń jest rozwijany od razu, żeby jedyny ruch nie wymagał rozgrywek
+        if (states.get(ROOT) != EXPANDED && !expand(ROOT, game, rootMoves)) {
+            logger.error("Drzewo MCTS jest za małe na ruchy korzenia");
+            return Move.NONE;
+        }
+        if (childCount[ROOT] <= 1) {
+            return childCount[ROOT] == 0 ? Move.NONE : moves[firstChild[ROOT]];
+        }
+
+        // Pozycji w trakcie bicia nie da się skopiować bez utraty sekwencji, więc gra wtedy jeden wątek
+        int started = game.isContinuedCapture() ? 1 : threads;
+        Thread[] workers = new Thread[started];
+        for (int i = 0; i < started; i++) {
+            GameLogic workerGame = i == 0 ? game : workerGames[i - 1];
+            if (i > 0) {
+                workerGame.copyFrom(game);
+            }
+            long seed = start + i;
+            workers[i] = Thread.ofVirtual().name("MCTS-" + i).start(() -> work(workerGame, seed));
+        }
+        awaitWorkers(workers);
+
+        int bestChild = mostVisitedChild(ROOT);
+        int bestMove = moves[bestChild];
+        if (states.get(bestChild) == EXPANDED && childCount[bestChild] > 0) {
+            game.makeMove(bestMove);
+            predictedHash = game.getHash();
+            game.unmakeMove();
+            predictedMove = moves[mostVisitedChild(bestChild)];
+        }
+
+        rootGame.copyFrom(game);
+        reusable = true;
+
+        long elapsedNanos = System.nanoTime() - start;
+        lastStatistics = new SearchStatistics("MCTS", bestMove, principalDepth(), score(bestChild), nextFree.get(),
+                playouts.sum(), elapsedNanos, started, 0, 0, 0);
+
+        long elapsedMillis = elapsedNanos / 1_000_000L;
+        logger.info("Wybrany ruch: " + Move.toString(bestMove) + ", rozgrywki: " + playouts.sum() + ", węzły: "
+                + nextFree.get() + " (zachowane " + reused + "), ocena: " + score(bestChild) + ", czas: " + elapsedMillis + " ms");
+        return bestMove;
+    }
+
+    /**
+     * Szuka nowej pozycji w drzewie poprzedniego przeszukiwania i zsuwa jej
+     * poddrzewo na początek tablic.
+     *
+     * @return Liczba zachowanych węzłów; 0, jeśli drzewo trzeba zbudować od nowa
+     */
+    private int reuseSubtree(GameLogic game) {
+        if (!reusable) {
+            return 0;
+        }
+        int newRoot = findNode(ROOT, game.getHash(), MAX_REUSE_PLIES);
+        if (newRoot < 0) {
+            return 0;
+        }
+
+        // Oznaczenie poddrzewa; dzieci leżą za rodzicem, więc wystarczy jedno przejście w przód
+        int end = nextFree.get();
+        Arrays.fill(relocated, newRoot, end, DISCARDED);
+        relocated[newRoot] = ROOT;
+        for (int node = newRoot; node < end; node++) {
+            if (relocated[node] != DISCARDED && states.get(node) == EXPANDED && childCount[node] > 0) {
+                Arrays.fill(relocated, firstChild[node], firstChild[node] + childCount[node], ROOT);
+            }
+        }
+
+        // Nowe indeksy w kolejności starych, więc żaden węzeł nie nadpisuje jeszcze nieprzeniesionego
+        int next = ROOT;
+        for (int node = newRoot; node < end; node++) {
+            if (relocated[node] != DISCARDED) {
+                relocated[node] = next++;
+            }
+        }
+        for (int node = newRoot; node < end; node++) {
+            int target = relocated[node];
+            if (target == DISCARDED) {
+                continue;
+            }
+            moves[target] = moves[node];
+            childCount[target] = childCount[node];
+            firstChild[target] = childCount[node] > 0 ? relocated[firstChild[node]] : 0;
+            states.set(target, states.get(node));
+            visits.set(target, visits.get(node));
+            points.set(target, points.get(node));
+        }
+        moves[ROOT] = Move.NONE;
+        nextFree.set(next);
+        return next;
+    }
+
+    /**
+     * Szuka węzła z pozycją o podanym haszu, wykonując ruchy z drzewa na
+     * kopii pozycji korzenia.
+     *
+     * @return Indeks węzła albo -1
+     */
+    private int findNode(int node, long hash, int plies) {
+        if (rootGame.getHash() == hash) {
+            return node;
+        }
+        if (plies == 0 || states.get(node) != EXPANDED) {
+            return -1;
+        }
+        int first = firstChild[node];
+        for (int child = first; child < first + childCount[node]; child++) {
+            rootGame.makeMove(moves[child]);
+            int found = findNode(child, hash, plies - 1);
+            rootGame.unmakeMove();
+            if (found >= 0) {
+                return found;
+            }
+        }
+        return -1;
+    }
+
+    // Czeka na wątki, co jakiś czas raportując postęp. Pierwszy wątek gra na grze wywołującego,
+    // więc po przerwaniu oczekiwania rozgrywki są zatrzymywane, ale trzeba poczekać na ich koniec
+    private void awaitWorkers(Thread[] workers) {
+        boolean interrupted = false;
+        for (Thread worker : workers) {
+            while (true) {
+                try {
+                    if (worker.join(Duration.ofMillis(REPORT_INTERVAL_MILLIS))) {
+                        break;
+                    }
+                    reportProgress();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    stopRequested = true;
+                }
+            }
+        }
+        if (interrupted) {
+            logger.warning("Przerwano oczekiwanie na wątki MCTS");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void reportProgress() {
+        SearchListener current = listener;
+        if (current == null) {
+            return;
+        }
+        int bestChild = mostVisitedChild(ROOT);
+        current.onIterationCompleted(principalDepth(), score(bestChild), playouts.sum(), moves[bestChild]);
+    }
+
+    private void work(GameLogic game, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] path = new int[MAX_TREE_DEPTH + 1];
+        boolean[] movedByWhite = new boolean[MAX_TREE_DEPTH + 1];
+        int[] buffer = new int[Move.MAX_MOVES];
+
+        while (!stopRequested && System.nanoTime() < deadline) {
+            int length = descend(game, path, movedByWhite, buffer);
+            int winner = playout(game, random, buffer);
+            backpropagate(path, movedByWhite, length, winner);
+            for (int i = 1; i < length; i++) {
+                game.unmakeMove();
+            }
+            playouts.increment();
+        }
+    }
+
+    /**
+     * Schodzi od korzenia do liścia, wykonując ruchy na grze i doliczając
+     * wirtualne straty odwiedzonym węzłom. Rozwija co najwyżej jeden liść.
+     *
+     * @return Liczba węzłów na ścieżce razem z korzeniem
+     */
+    private int descend(GameLogic game, int[] path, boolean[] movedByWhite, int[] buffer) {
+        int node = ROOT;
+        int length = 0;
+        visits.addAndGet(ROOT, VIRTUAL_LOSS);
+        path[length++] = ROOT;
+
+        boolean expanded = false;
+        while (length <= MAX_TREE_DEPTH) {
+            int state = states.get(node);
+            if (state == LEAF && !expanded && !full && states.compareAndSet(node, LEAF, EXPANDING)) {
+                expanded = expand(node, game, buffer);
+                state = states.get(node);
+            }
+            if (state != EXPANDED || childCount[node] == 0) {
+                break;
+            }
+
+            int child = selectChild(node);
+            visits.addAndGet(child, VIRTUAL_LOSS);
+            movedByWhite[length] = game.isWhiteTurn();
+            path[length++] = child;
+            game.makeMove(moves[child]);
+            node = child;
+            if (expanded) {
+                break;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Tworzy dzieci węzła dla wszystkich ruchów w pozycji. Jeśli drzewo jest
+     * pełne, węzeł pozostaje liściem.
+     *
+     * @return true, jeśli węzeł został rozwinięty
+     */
+    private boolean expand(int node, GameLogic game, int[] buffer) {
+        int count = game.generateFullMoves(buffer);
+
+        int first;
+        do {
+            first = nextFree.get();
+            if (first + count > capacity) {
+                full = true;
+                states.set(node, LEAF);
+                return false;
+            }
+        } while (!nextFree.compareAndSet(first, first + count));
+
+        for (int i = 0; i < count; i++) {
+            resetNode(first + i, buffer[i]);
+        }
+        firstChild[node] = first;
+        childCount[node] = count;
+        // Zapis stanu publikuje dzieci pozostałym wątkom
+        states.set(node, EXPANDED);
+        return true;
+    }
+
+    private void resetNode(int node, int move) {
+        moves[node] = move;
+        childCount[node] = 0;
+        states.set(node, LEAF);
+        visits.set(node, 0);
+        points.set(node, 0);
+    }
+
+    // Wybiera dziecko według UCT; nieodwiedzone dzieci mają pierwszeństwo
+    private int selectChild(int node) {
+        int first = firstChild[node];
+        int end = first + childCount[node];
+        double logParent = Math.log(Math.max(visits.get(node), 1));
+
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = first; child < end; child++) {
+            int childVisits = visits.get(child);
+            if (childVisits == 0) {
+                return child;
+            }
+            double value = points.get(child) / (double) (WIN_POINTS * childVisits)
+                    + EXPLORATION * Math.sqrt(logParent / childVisits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Rozgrywa losowe ruchy do końca gry, a potem cofa je na grze.
+     *
+     * @return 1 dla wygranej białych, -1 dla wygranej czarnych, 0 dla remisu
+     */
+    private static int playout(GameLogic game, SplittableRandom random, int[] buffer) {
+        int winner = 0;
+        int plies = 0;
+        while (plies < MAX_PLAYOUT_PLIES) {
+            int count = game.generateFullMoves(buffer);
+            if (count == 0) {
+                // Strona bez ruchów przegrywa
+                winner = game.isWhiteTurn() ? -1 : 1;
+                break;
+            }
+            game.makeMove(buffer[random.nextInt(count)]);
+            plies++;
+        }
+        for (int i = 0; i < plies; i++) {
+            game.unmakeMove();
+        }
+        return winner;
+    }
+
+    // Zapisuje wynik w węzłach ścieżki i zdejmuje z nich wirtualne straty
+    private void backpropagate(int[] path, boolean[] movedByWhite, int length, int winner) {
+        visits.addAndGet(ROOT, 1 - VIRTUAL_LOSS);
+        for (int i = 1; i < length; i++) {
+            int node = path[i];
+            int result = winner == 0 ? DRAW_POINTS : (winner > 0) == movedByWhite[i] ? WIN_POINTS : 0;
+            points.addAndGet(node, result);
+            visits.addAndGet(node, 1 - VIRTUAL_LOSS);
+        }
+    }
+
+    private int mostVisitedChild(int node) {
+        int first = firstChild[node];
+        int best = first;
+        for (int child = first + 1; child < first + childCount[node]; child++) {
+            if (visits.get(child) > visits.get(best)) {
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    // Długość ścieżki najczęściej odwiedzanych ruchów
+    private int principalDepth() {
+        int depth = 0;
+        int node = ROOT;
+        while (depth < MAX_TREE_DEPTH && states.get(node) == EXPANDED && childCount[node] > 0) {
+            node = mostVisitedChild(node);
+            depth++;
+        }
+        return depth;
+    }
+
+    private int score(int child) {
+        int childVisits = Math.max(visits.get(child), 1);
+        return (int) Math.round((points.get(child) / (double) childVisits - 1) * SCORE_SCALE);
+    }
+
+    /**
+     * Przerywa trwające przeszukiwanie; wybierany jest wtedy najczęściej
+     * odwiedzany dotąd ruch. Może być wywołana z innego wątku.
+     */
+    @Override
+    public void stop() {
+        stopRequested = true;
+    }
+
+    @Override
+    public void clearStop() {
+        stopRequested = false;
+    }
+
+    /**
+     * Postęp jest raportowany przez wątek wywołujący co
+     * {@link #REPORT_INTERVAL_MILLIS} ms; głębokość to długość ścieżki
+     * najczęściej odwiedzanych ruchów, a liczba węzłów to liczba rozgrywek.
+     */
+    @Override
+    public void setSearchListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public SearchStatistics getLastStatistics() {
+        return lastStatistics;
+    }
+
+    /**
+     * @return Liczba rozgrywek ostatniego przeszukiwania
+     */
+    public long getPlayouts() {
+        return playouts.sum();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
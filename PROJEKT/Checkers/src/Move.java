@@ -0,0 +1,73 @@
+/**
+ * Operacje na ruchach zakodowanych w pojedynczej liczbie {@code int}.
+ * Bity 0-4 to pole startowe, bity 5-9 pole docelowe, bity 10-27 maska
+ * zbitych bierek, a bit 28 oznacza promocję na damkę. Zbita bierka nigdy nie
+ * stoi na krawędzi planszy, więc maska obejmuje tylko 18 pól wewnętrznych
+ * (indeksy 5-10, 13-18 i 21-26).
+ */
+public final class Move {
+
+    // Pojemność bufora wystarczająca dla każdej pozycji
+    public static final int MAX_MOVES = 256;
+
+    // Wartość oznaczająca brak ruchu (pole startowe równe docelowemu)
+    public static final int NONE = 0;
+
+    private static final int SQUARE_MASK = 0x1F;
+    private static final int TO_SHIFT = 5;
+    private static final int CAPTURE_SHIFT = 10;
+    private static final int PROMOTION = 1 << 28;
+    private static final int BLOCK_MASK = 0x3F;
+
+    private Move() {
+    }
+
+    public static int of(int from, int to, int capturedMask, boolean promotion) {
+        return from | (to << TO_SHIFT) | (packCaptures(capturedMask) << CAPTURE_SHIFT) | (promotion ? PROMOTION : 0);
+    }
+
+    public static int from(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    public static int to(int move) {
+        return (move >>> TO_SHIFT) & SQUARE_MASK;
+    }
+
+    /**
+     * Zwraca maskę zbitych bierek w numeracji pól {@link Bitboard}.
+     */
+    public static int captured(int move) {
+        int packed = move >>> CAPTURE_SHIFT;
+        return ((packed & BLOCK_MASK) << 5)
+                | (((packed >>> 6) & BLOCK_MASK) << 13)
+                | (((packed >>> 12) & BLOCK_MASK) << 21);
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & ~PROMOTION) >>> CAPTURE_SHIFT != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move & PROMOTION) != 0;
+    }
+
+    public static int captureCount(int move) {
+        return Integer.bitCount((move & ~PROMOTION) >>> CAPTURE_SHIFT);
+    }
+
+    /**
+     * Zapisuje ruch w formacie używanym przez protokół sieciowy: "x,y->x,y".
+     */
+    public static String toString(int move) {
+        int from = from(move);
+        int to = to(move);
+        return Bitboard.col(from) + "," + Bitboard.row(from) + "->" + Bitboard.col(to) + "," + Bitboard.row(to);
+    }
+
+    private static int packCaptures(int capturedMask) {
+        return ((capturedMask >>> 5) & BLOCK_MASK)
+                | (((capturedMask >>> 13) & BLOCK_MASK) << 6)
+                | (((capturedMask >>> 21) & BLOCK_MASK) << 12);
+    }
+}
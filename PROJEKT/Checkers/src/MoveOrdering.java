@@ -0,0 +1,107 @@
+import java.util.Arrays;
+
+/**
+ * Porządkowanie ruchów dla {@link AlphaBetaSearch}. Najpierw badany jest
+ * ruch z tablicy transpozycji, potem bicia według liczby zbitych bierek,
+ * dwa ruchy zabójcze z danego półruchu, a na końcu pozostałe ruchy według
+ * tablicy historii indeksowanej polem startowym i docelowym. Bicie jest
+ * obowiązkowe, więc bicia i ruchy bez bicia nigdy nie występują razem, ale
+ * kolejność bić według ich długości nadal ma znaczenie.
+ * <p>
+ * Ruch zabójczy dostaje podwojoną wartość historii zamiast stałego
+ * pierwszeństwa przed wszystkimi ruchami. Przy ocenie samego materiału
+ * stałe pierwszeństwo zwiększało liczbę węzłów, a premia w historii ją
+ * zmniejsza.
+ */
+public class MoveOrdering {
+
+    private static final int HASH_MOVE_SCORE = 1 << 30;
+    private static final int CAPTURE_SCORE = 1 << 28;
+    private static final int CAPTURE_COUNT_SHIFT = 22;
+
+    // Wartości historii są połowione po przekroczeniu limitu, żeby nie dogoniły bić
+    private static final int HISTORY_LIMIT = 1 << 20;
+
+    private final int[] killers = new int[AlphaBetaSearch.MAX_PLY * 2];
+    private final int[] history = new int[Bitboard.SQUARES * Bitboard.SQUARES];
+    private final int[] scores = new int[Move.MAX_MOVES];
+
+    /**
+     * Przygotowuje tabelę do nowego przeszukiwania: usuwa ruchy zabójcze i
+     * osłabia historię z poprzednich przeszukiwań.
+     */
+    public void newSearch() {
+        Arrays.fill(killers, Move.NONE);
+        for (int i = 0; i < history.length; i++) {
+            history[i] >>= 1;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(killers, Move.NONE);
+        Arrays.fill(history, 0);
+    }
+
+    /**
+     * Sortuje ruchy od najbardziej obiecującego.
+     *
+     * @param hashMove Ruch z tablicy transpozycji lub {@link Move#NONE}
+     */
+    public void order(int[] moves, int count, int ply, int hashMove) {
+        int firstKiller = killers[ply * 2];
+        int secondKiller = killers[ply * 2 + 1];
+
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int score;
+            if (move == hashMove) {
+                score = HASH_MOVE_SCORE;
+            } else if (Move.isCapture(move)) {
+                score = CAPTURE_SCORE + (Move.captureCount(move) << CAPTURE_COUNT_SHIFT) + historyScore(move);
+            } else if (move == firstKiller) {
+                score = (historyScore(move) << 1) + 2;
+            } else if (move == secondKiller) {
+                score = (historyScore(move) << 1) + 1;
+            } else {
+                score = historyScore(move);
+            }
+            scores[i] = score;
+        }
+
+        // Sortowanie przez wstawianie; ruchów jest zwykle kilka, a nie trzeba niczego alokować
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            int score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                moves[j + 1] = moves[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            scores[j + 1] = score;
+        }
+    }
+
+    /**
+     * Zapamiętuje ruch, który spowodował odcięcie.
+     */
+    public void recordCutoff(int move, int ply, int depth) {
+        if (!Move.isCapture(move) && killers[ply * 2] != move) {
+            killers[ply * 2 + 1] = killers[ply * 2];
+            killers[ply * 2] = move;
+        }
+
+        int index = Move.from(move) * Bitboard.SQUARES + Move.to(move);
+        history[index] += depth * depth;
+        if (history[index] > HISTORY_LIMIT) {
+            for (int i = 0; i < history.length; i++) {
+                history[i] >>= 1;
+            }
+        }
+    }
+
+    private int historyScore(int move) {
+        return history[Move.from(move) * Bitboard.SQUARES + Move.to(move)];
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Strategia wyboru ruchu dla {@link ComputerPlayer}.
+ */
+public interface MoveStrategy {
+
+    /**
+     * Wybiera ruch dla strony na posunięciu. Strategia może wykonywać ruchy na
+     * przekazanej grze, ale przed powrotem musi przywrócić pozycję wyjściową.
+     *
+     * @param game Gra, w której należy wybrać ruch
+     * @return Wybrany ruch (pełna sekwencja bić) lub {@link Move#NONE}, gdy nie
+     * ma ruchów
+     */
+    int selectMove(GameLogic game);
+
+    /**
+     * Wybiera ruch przy grze na czas. Strategia kończy namysł po czasie
+     * docelowym, chyba że pozycja jest niestabilna, ale nigdy nie przekracza
+     * czasu maksymalnego. Strategie bez zarządzania czasem wybierają ruch tak
+     * samo jak {@link #selectMove(GameLogic)}.
+     *
+     * @param targetMillis Czas docelowy namysłu
+     * @param maxMillis    Czas maksymalny namysłu
+     * @return Wybrany ruch lub {@link Move#NONE}, gdy nie ma ruchów
+     */
+    default int selectMove(GameLogic game, long targetMillis, long maxMillis) {
+        return selectMove(game);
+    }
+
+    /**
+     * Wybiera ruch bez limitu czasu, aż do wywołania {@link #stop()}. Służy
+     * do namysłu w czasie ruchu przeciwnika; strategie bez limitu czasu
+     * wybierają ruch tak samo jak {@link #selectMove}.
+     *
+     * @return Najlepszy znaleziony ruch lub {@link Move#NONE}, gdy nie ma ruchów
+     */
+    default int ponder(GameLogic game) {
+        return selectMove(game);
+    }
+
+    /**
+     * Zwraca ruch, którego strategia spodziewa się po stronie na posunięciu,
+     * bez przeszukiwania, np. z wyników poprzedniego wyboru ruchu.
+     *
+     * @return Przewidywany ruch lub {@link Move#NONE}, jeśli go nie zna
+     */
+    default int predictMove(GameLogic game) {
+        return Move.NONE;
+    }
+
+    /**
+     * Przerywa trwający wybór ruchu; {@link #selectMove} zwraca wtedy
+     * najlepszy znaleziony dotąd ruch. Może być wywołana z innego wątku.
+     * Prośba obowiązuje do wywołania {@link #clearStop()}, więc przerywa
+     * także wybór ruchu, który został zlecony, ale jeszcze się nie zaczął.
+     */
+    default void stop() {
+    }
+
+    /**
+     * Kasuje prośbę o przerwanie. Wywołuje ją wątek zlecający wybór ruchu
+     * przed przekazaniem go do innego wątku.
+     */
+    default void clearStop() {
+    }
+
+    /**
+     * Zwraca statystyki ostatniego wyboru ruchu.
+     *
+     * @return Statystyki lub null, jeśli strategia ich nie zbiera
+     */
+    default SearchStatistics getLastStatistics() {
+        return null;
+    }
+
+    /**
+     * Ustawia odbiorcę informacji o postępie wyboru ruchu lub null.
+     */
+    default void setSearchListener(SearchListener listener) {
+    }
+}
@@ -0,0 +1,147 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * Książka otwarć czytana z pliku mapowanego w pamięci. Plik tworzy
+ * {@link OpeningBookBuilder}; zawiera wpisy (hasz pozycji, ruch, waga)
+ * posortowane według hasza, więc ruchy dla pozycji są wyszukiwane
+ * binarnie bez wczytywania pliku na stertę. Hasz to hasz Zobrista z
+ * {@link GameLogic#getHash()}, taki sam w każdym uruchomieniu.
+ */
+public class OpeningBook {
+
+    private static final Logger logger = new Logger(OpeningBook.class);
+
+    static final int MAGIC = 0x424F4F4B;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 3 * Integer.BYTES;
+
+    // Wpis: hasz (long), ruch (int), waga (int)
+    static final int ENTRY_BYTES = Long.BYTES + 2 * Integer.BYTES;
+
+    private final MappedByteBuffer data;
+    private final int entryCount;
+    private final Random random;
+
+    private OpeningBook(MappedByteBuffer data, int entryCount, Random random) {
+        this.data = data;
+        this.entryCount = entryCount;
+        this.random = random;
+    }
+
+    /**
+     * Otwiera plik książki otwarć z losowym wyborem ruchów.
+     *
+     * @return Książka lub null, jeśli pliku nie ma albo jest niepoprawny
+     */
+    public static OpeningBook open(Path path) {
+        return open(path, new Random());
+    }
+
+    /**
+     * Otwiera plik książki otwarć. Ruchy są losowane podanym generatorem, więc
+     * generator z ustalonym ziarnem daje powtarzalne otwarcia.
+     *
+     * @return Książka lub null, jeśli pliku nie ma albo jest niepoprawny
+     */
+    public static OpeningBook open(Path path, Random random) {
+        if (!Files.isRegularFile(path)) {
+            logger.warning("Brak pliku książki otwarć: " + path);
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (data.capacity() < HEADER_BYTES || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+                logger.error("Niepoprawny plik książki otwarć: " + path);
+                return null;
+            }
+
+            int entryCount = data.getInt(8);
+            if (entryCount < 0 || data.capacity() != HEADER_BYTES + (long) entryCount * ENTRY_BYTES) {
+                logger.error("Niepoprawny rozmiar książki otwarć: " + path);
+                return null;
+            }
+
+            logger.info("Wczytano książkę otwarć: " + entryCount + " wpisów");
+            return new OpeningBook(data, entryCount, random);
+        } catch (IOException e) {
+            logger.error("Nie udało się otworzyć książki otwarć: " + path, e);
+            return null;
+        }
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Losuje ruch z książki dla pozycji na posunięciu, z prawdopodobieństwem
+     * proporcjonalnym do wagi. Ruchy niedozwolone w pozycji (np. z kolizji
+     * haszy) są pomijane.
+     *
+     * @return Ruch z książki lub {@link Move#NONE}, jeśli pozycji w niej nie ma
+     */
+    public int probe(GameLogic game) {
+        if (game.isContinuedCapture()) {
+            return Move.NONE;
+        }
+
+        long hash = game.getHash();
+        int first = findFirst(hash);
+        long totalWeight = 0;
+        int end = first;
+        for (; end < entryCount && hash(end) == hash; end++) {
+            if (game.isLegalMove(move(end))) {
+                totalWeight += weight(end);
+            }
+        }
+        if (totalWeight == 0) {
+            return Move.NONE;
+        }
+
+        long pick = (long) (random.nextDouble() * totalWeight);
+        for (int i = first; i < end; i++) {
+            if (!game.isLegalMove(move(i))) {
+                continue;
+            }
+            pick -= weight(i);
+            if (pick < 0) {
+                return move(i);
+            }
+        }
+        return Move.NONE;
+    }
+
+    // Indeks pierwszego wpisu o haszu nie mniejszym niż podany
+    private int findFirst(long hash) {
+        int low = 0;
+        int high = entryCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (hash(middle) < hash) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long hash(int entry) {
+        return data.getLong(HEADER_BYTES + entry * ENTRY_BYTES);
+    }
+
+    private int move(int entry) {
+        return data.getInt(HEADER_BYTES + entry * ENTRY_BYTES + Long.BYTES);
+    }
+
+    private int weight(int entry) {
+        return data.getInt(HEADER_BYTES + entry * ENTRY_BYTES + Long.BYTES + Integer.BYTES);
+    }
+}
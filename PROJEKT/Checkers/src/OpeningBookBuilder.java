@@ -0,0 +1,251 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Narzędzie tworzące plik {@link OpeningBook} z partii rozegranych przez
+ * silnik z samym sobą i z partii zaimportowanych z plików tekstowych. Waga
+ * ruchu to liczba partii, w których ruch został wybrany w danej pozycji.
+ * <p>
+ * W partiach silnika z samym sobą pierwsze półruchy są losowe, żeby partie
+ * się różniły. W tych pozycjach do książki trafia ruch wybrany przez silnik,
+ * mimo że w partii wykonywany jest ruch losowy.
+ * <p>
+ * Plik partii zawiera jedną partię w wierszu, z ruchami rozdzielonymi
+ * spacjami. Ruch to ścieżka pól "x,y->x,y": pole początkowe i pola
+ * lądowania kolejnych skoków, np. "1,2->3,4->5,6" dla bicia podwójnego.
+ * Dwa pola oznaczają najpierw ruch lub pojedynczy skok między nimi. Bicie
+ * wielokrotne można zapisać samym polem początkowym i końcowym, jak w
+ * {@link Move#toString}, tylko wtedy, gdy pasuje do jednego dozwolonego
+ * ruchu; damka może między tymi polami zbić różne bierki, więc wiersz z
+ * niejednoznacznym ruchem jest importowany tylko do tego ruchu.
+ * <p>
+ * Użycie: {@code java OpeningBookBuilder [plik książki] [liczba partii] [pliki partii...]}
+ */
+public class OpeningBookBuilder {
+
+    private static final Logger logger = new Logger(OpeningBookBuilder.class);
+
+    private static final String DEFAULT_FILE = "opening.book";
+    private static final int DEFAULT_GAMES = 100;
+
+    // Liczba półruchów od początku partii zapisywanych w książce
+    private static final int BOOK_PLIES = 12;
+    private static final int RANDOM_PLIES = 2;
+    private static final int MOVE_TIME_MILLIS = 50;
+    private static final int HASH_SIZE_MB = 16;
+
+    // Wynik findMove dla ruchu pasującego do kilku dozwolonych ruchów
+    private static final int AMBIGUOUS = -1;
+
+    // Hasz pozycji -> ruch -> liczba wyborów
+    private final Map<Long, Map<Integer, Integer>> counts = new HashMap<>();
+    private final GameLogic game = new GameLogic();
+    private final int[] moves = new int[Move.MAX_MOVES];
+
+    public static void main(String[] args) {
+        Path path = Path.of(args.length > 0 ? args[0] : DEFAULT_FILE);
+        int games = DEFAULT_GAMES;
+        try {
+            if (args.length > 1) {
+                games = Integer.parseInt(args[1]);
+            }
+        } catch (NumberFormatException e) {
+            logger.error("Niepoprawna liczba partii: " + args[1]);
+            return;
+        }
+
+        OpeningBookBuilder builder = new OpeningBookBuilder();
+        for (int i = 2; i < args.length; i++) {
+            if (!builder.importGames(Path.of(args[i]))) {
+                return;
+            }
+        }
+        builder.addSelfPlay(games, new Random());
+        if (builder.write(path)) {
+            logger.info("Zapisano książkę otwarć: " + path);
+        }
+    }
+
+    /**
+     * Rozgrywa partie silnika z samym sobą i zapisuje ich początki.
+     */
+    public void addSelfPlay(int games, Random random) {
+        AlphaBetaSearch search = new AlphaBetaSearch(MOVE_TIME_MILLIS, new TranspositionTable(HASH_SIZE_MB));
+        for (int i = 0; i < games; i++) {
+            game.resetGame();
+            for (int ply = 0; ply < BOOK_PLIES; ply++) {
+                int count = game.generateFullMoves(moves);
+                if (count == 0) {
+                    break;
+                }
+
+                search.getTable().newSearch();
+                int move = search.search(game, System.nanoTime() + MOVE_TIME_MILLIS * 1_000_000L, 1);
+                record(game.getHash(), move);
+                if (ply < RANDOM_PLIES) {
+                    move = moves[random.nextInt(count)];
+                }
+                game.makeMove(move);
+            }
+            if ((i + 1) % 10 == 0) {
+                logger.info("Rozegrano " + (i + 1) + " z " + games + " partii");
+            }
+        }
+    }
+
+    /**
+     * Wczytuje partie z pliku tekstowego. Wiersze z niedozwolonym ruchem są
+     * zapisywane do tego ruchu.
+     *
+     * @return true, jeśli plik udało się odczytać
+     */
+    public boolean importGames(Path path) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(path);
+        } catch (IOException e) {
+            logger.error("Nie udało się odczytać partii: " + path, e);
+            return false;
+        }
+
+        int imported = 0;
+        for (int line = 0; line < lines.size(); line++) {
+            String text = lines.get(line).trim();
+            if (text.isEmpty()) {
+                continue;
+            }
+
+            game.resetGame();
+            String[] tokens = text.split("\\s+");
+            for (int ply = 0; ply < tokens.length && ply < BOOK_PLIES; ply++) {
+                int move = findMove(tokens[ply]);
+                if (move == Move.NONE || move == AMBIGUOUS) {
+                    logger.warning((move == AMBIGUOUS ? "Niejednoznaczny ruch " : "Niedozwolony ruch ") + tokens[ply]
+                            + " w wierszu " + (line + 1) + " pliku " + path);
+                    break;
+                }
+                record(game.getHash(), move);
+                game.makeMove(move);
+            }
+            imported++;
+        }
+        logger.info("Zaimportowano " + imported + " partii z " + path);
+        return true;
+    }
+
+    // Szuka dozwolonego ruchu zapisanego jako ścieżka pól. Najpierw szuka ruchu o dokładnie tej ścieżce,
+    // a zapis pola początkowego i końcowego porównuje tylko z tymi polami
+    private int findMove(String text) {
+        int[] path = parsePath(text);
+        if (path == null) {
+            return Move.NONE;
+        }
+
+        int captured = capturedAlong(path);
+        int count = game.generateFullMoves(moves);
+        int found = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (Move.from(move) == path[0] && Move.to(move) == path[path.length - 1]
+                    && Move.captured(move) == captured) {
+                return move;
+            }
+            if (path.length == 2 && Move.from(move) == path[0] && Move.to(move) == path[1]) {
+                found = found == Move.NONE || found == move ? move : AMBIGUOUS;
+            }
+        }
+        return found;
+    }
+
+    // Zamienia "x,y->x,y->..." na numery pól; null, jeśli zapis jest niepoprawny
+    private static int[] parsePath(String text) {
+        String[] points = text.split("->");
+        if (points.length < 2) {
+            return null;
+        }
+
+        int[] path = new int[points.length];
+        for (int i = 0; i < points.length; i++) {
+            String[] coordinates = points[i].split(",");
+            if (coordinates.length != 2) {
+                return null;
+            }
+            try {
+                path[i] = Bitboard.square(Integer.parseInt(coordinates[1]), Integer.parseInt(coordinates[0]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (path[i] < 0) {
+                return null;
+            }
+        }
+        return path;
+    }
+
+    // Zwraca maskę bierek przeciwnika między kolejnymi polami ścieżki; -1, jeśli któryś odcinek nie biegnie
+    // po przekątnej
+    private int capturedAlong(int[] path) {
+        int opponents = game.getPieces(!game.isWhiteTurn());
+        int captured = 0;
+        for (int i = 1; i < path.length; i++) {
+            int row = Bitboard.row(path[i - 1]);
+            int col = Bitboard.col(path[i - 1]);
+            int rowStep = Integer.signum(Bitboard.row(path[i]) - row);
+            int colStep = Integer.signum(Bitboard.col(path[i]) - col);
+            if (rowStep == 0 || Math.abs(Bitboard.row(path[i]) - row) != Math.abs(Bitboard.col(path[i]) - col)) {
+                return -1;
+            }
+            for (row += rowStep, col += colStep; row != Bitboard.row(path[i]); row += rowStep, col += colStep) {
+                int square = Bitboard.square(row, col);
+                if ((opponents & (1 << square)) != 0) {
+                    captured |= 1 << square;
+                }
+            }
+        }
+        return captured;
+    }
+
+    private void record(long hash, int move) {
+        counts.computeIfAbsent(hash, _ -> new HashMap<>()).merge(move, 1, Integer::sum);
+    }
+
+    /**
+     * Zapisuje książkę z wpisami posortowanymi według hasza, a dla jednej
+     * pozycji według malejącej wagi.
+     *
+     * @return true, jeśli zapis się powiódł
+     */
+    public boolean write(Path path) {
+        List<long[]> entries = new ArrayList<>();
+        for (Map.Entry<Long, Map<Integer, Integer>> position : counts.entrySet()) {
+            for (Map.Entry<Integer, Integer> move : position.getValue().entrySet()) {
+                entries.add(new long[] { position.getKey(), move.getKey(), move.getValue() });
+            }
+        }
+        entries.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(b[2], a[2]));
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeInt(OpeningBook.VERSION);
+            out.writeInt(entries.size());
+            for (long[] entry : entries) {
+                out.writeLong(entry[0]);
+                out.writeInt((int) entry[1]);
+                out.writeInt((int) entry[2]);
+            }
+            logger.info("Książka otwarć: " + counts.size() + " pozycji, " + entries.size() + " ruchów");
+            return true;
+        } catch (IOException e) {
+            logger.error("Nie udało się zapisać książki otwarć: " + path, e);
+            return false;
+        }
+    }
+}
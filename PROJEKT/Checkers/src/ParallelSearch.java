@@ -0,0 +1,251 @@
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Równoległe przeszukiwanie w stylu Lazy SMP. Wszystkie wątki przeszukują
+ * tę samą pozycję z iteracyjnym pogłębianiem, każdy na własnej kopii gry, i
+ * dzielą jedną tablicę transpozycji, więc korzystają nawzajem ze swoich
+ * wyników. Co drugi wątek pomocniczy zaczyna o jedną iterację głębiej, żeby
+ * wątki nie przeszukiwały drzewa w tej samej kolejności. Ruch wybiera wątek
+ * wywołujący, a po jego zakończeniu wątki pomocnicze są zatrzymywane.
+ * <p>
+ * Przyspieszenie względem jednego wątku mierzy
+ * {@code java EngineBenchmark smp [głębokość] [wątki]}: czas dojścia do
+ * stałej głębokości i liczbę węzłów na sekundę na stałym zestawie pozycji.
+ */
+public class ParallelSearch implements MoveStrategy {
+
+    private static final Logger logger = new Logger(ParallelSearch.class);
+
+    private final long timeBudgetMillis;
+    private final TranspositionTable table;
+    private final AlphaBetaSearch[] searches;
+    private final GameLogic[] helperGames;
+    private final Future<?>[] helpers;
+    private final ExecutorService executor;
+
+    private long nodes;
+    private long endgameHits;
+    private volatile SearchStatistics lastStatistics;
+
+    /**
+     * @param timeBudgetMillis Limit czasu na jeden ruch w milisekundach
+     * @param threads          Liczba wątków razem z wątkiem wywołującym
+     * @param table            Tablica transpozycji współdzielona przez wątki
+     */
+    public ParallelSearch(long timeBudgetMillis, int threads, TranspositionTable table) {
+        if (threads < 1) {
+            logger.warning("Niepoprawna liczba wątków przeszukiwania: " + threads + ", używam 1");
+            threads = 1;
+        }
+
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.table = table;
+        searches = new AlphaBetaSearch[threads];
+        helperGames = new GameLogic[threads - 1];
+        helpers = new Future<?>[threads - 1];
+        for (int i = 0; i < threads; i++) {
+            searches[i] = new AlphaBetaSearch(timeBudgetMillis, table);
+        }
+        for (int i = 0; i < helperGames.length; i++) {
+            helperGames[i] = new GameLogic();
+        }
+
+        executor = helperGames.length == 0 ? null : Executors.newFixedThreadPool(helperGames.length, runnable -> {
+            Thread thread = new Thread(runnable, "Przeszukiwanie");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Przeszukiwanie równoległe: " + threads + " wątków");
+    }
+
+    @Override
+    public int selectMove(GameLogic game) {
+        return run(game, System.nanoTime() + timeBudgetMillis * 1_000_000L, Long.MAX_VALUE);
+    }
+
+    /**
+     * O zakończeniu namysłu przed czasem maksymalnym decyduje wątek główny;
+     * wątki pomocnicze pracują, dopóki on nie skończy.
+     */
+    @Override
+    public int selectMove(GameLogic game, long targetMillis, long maxMillis) {
+        return run(game, System.nanoTime() + maxMillis * 1_000_000L, targetMillis * 1_000_000L);
+    }
+
+    /**
+     * Przeszukuje pozycję we wszystkich wątkach aż do wywołania {@link #stop()}.
+     */
+    @Override
+    public int ponder(GameLogic game) {
+        return run(game, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    @Override
+    public int predictMove(GameLogic game) {
+        return searches[0].predictMove(game);
+    }
+
+    private int run(GameLogic game, long deadline, long targetNanos) {
+        lastStatistics = null;
+        table.newSearch();
+        long start = System.nanoTime();
+
+        // Pozycji w trakcie bicia nie da się skopiować do wątków pomocniczych bez utraty sekwencji
+        int started = game.isContinuedCapture() ? 0 : helperGames.length;
+        for (int i = 0; i < started; i++) {
+            GameLogic helperGame = helperGames[i];
+            AlphaBetaSearch search = searches[i + 1];
+            int startDepth = 1 + (i + 1) % 2;
+            helperGame.copyFrom(game);
+            search.clearStop();
+            helpers[i] = executor.submit(() -> search.search(helperGame, deadline, startDepth));
+        }
+
+        AlphaBetaSearch main = searches[0];
+        int bestMove = main.search(game, deadline, targetNanos, 1);
+
+        nodes = main.getNodes();
+        endgameHits = main.getEndgameHits();
+        for (int i = 0; i < started; i++) {
+            awaitHelper(searches[i + 1], helpers[i]);
+            nodes += searches[i + 1].getNodes();
+            endgameHits += searches[i + 1].getEndgameHits();
+        }
+
+        if (bestMove != Move.NONE) {
+            long elapsedNanos = System.nanoTime() - start;
+            lastStatistics = new SearchStatistics("Alfa-beta równoległe", bestMove, main.getCompletedDepth(),
+                    main.getBestScore(), nodes, 0, elapsedNanos, started + 1, table.getProbes(), table.getHits(),
+                    endgameHits);
+
+            long elapsedMillis = elapsedNanos / 1_000_000L;
+            logger.info("Wybrany ruch: " + Move.toString(bestMove) + ", głębokość: " + main.getCompletedDepth()
+                    + ", węzły (wszystkie wątki): " + nodes + ", ocena: " + main.getBestScore() + ", czas: "
+                    + elapsedMillis + " ms");
+            logger.debug("Tablica transpozycji: trafienia " + table.getHits() + " z " + table.getProbes()
+                    + " odczytów, zapełnienie " + table.getFillPermille() + "‰");
+        }
+        return bestMove;
+    }
+
+    private void awaitHelper(AlphaBetaSearch search, Future<?> helper) {
+        search.stop();
+        try {
+            helper.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Przerwano oczekiwanie na wątek przeszukiwania", e);
+        } catch (ExecutionException e) {
+            logger.error("Błąd w wątku przeszukiwania", e);
+        }
+    }
+
+    /**
+     * Przerywa trwające przeszukiwanie we wszystkich wątkach.
+     */
+    @Override
+    public void stop() {
+        for (AlphaBetaSearch search : searches) {
+            search.stop();
+        }
+    }
+
+    /**
+     * Ustawia bazę końcówek we wszystkich wątkach; plik jest mapowany w
+     * pamięci, więc wątki czytają go bez kopiowania.
+     */
+    public void setEndgameDatabase(EndgameDatabase endgames) {
+        for (AlphaBetaSearch search : searches) {
+            search.setEndgameDatabase(endgames);
+        }
+    }
+
+    /**
+     * Włącza lub wyłącza rozgrywanie bić w liściach we wszystkich wątkach.
+     */
+    public void setQuiescence(boolean enabled) {
+        for (AlphaBetaSearch search : searches) {
+            search.setQuiescence(enabled);
+        }
+    }
+
+    /**
+     * Włącza lub wyłącza przedłużanie ruchów wymuszonych we wszystkich
+     * wątkach.
+     */
+    public void setForcedMoveExtension(boolean enabled) {
+        for (AlphaBetaSearch search : searches) {
+            search.setForcedMoveExtension(enabled);
+        }
+    }
+
+    /**
+     * Kasuje prośbę o przerwanie we wszystkich wątkach; wątki pomocnicze
+     * kasują ją też przed każdym przeszukiwaniem.
+     */
+    @Override
+    public void clearStop() {
+        for (AlphaBetaSearch search : searches) {
+            search.clearStop();
+        }
+    }
+
+    /**
+     * Ogranicza głębokość iteracyjnego pogłębiania we wszystkich wątkach, np.
+     * do pomiaru czasu dojścia do stałej głębokości.
+     */
+    public void setMaxDepth(int maxDepth) {
+        for (AlphaBetaSearch search : searches) {
+            search.setMaxDepth(maxDepth);
+        }
+    }
+
+    /**
+     * Postęp jest raportowany przez wątek wywołujący, który wybiera ruch.
+     */
+    @Override
+    public void setSearchListener(SearchListener listener) {
+        searches[0].setSearchListener(listener);
+    }
+
+    /**
+     * Zatrzymuje wątki pomocnicze. Po wywołaniu tej metody strategia nie
+     * może być dalej używana.
+     */
+    public void shutdown() {
+        stop();
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public int getThreadCount() {
+        return searches.length;
+    }
+
+    /**
+     * @return Głębokość ostatniej zakończonej iteracji wątku głównego
+     */
+    public int getCompletedDepth() {
+        return searches[0].getCompletedDepth();
+    }
+
+    /**
+     * @return Liczba węzłów ostatniego przeszukiwania we wszystkich wątkach
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    @Override
+    public SearchStatistics getLastStatistics() {
+        return lastStatistics;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * Narzędzie do liczenia liści drzewa ruchów (perft) generatora z
+ * {@link GameLogic}. Wielokrotne bicie liczy się jako jeden ruch. Służy do
+ * wykrywania regresji generatora oraz jako pomiar jego przepustowości.
+ */
+public class Perft {
+
+    private static final int MAX_DEPTH = 64;
+
+    // Pozycje referencyjne: FEN, opis i oczekiwana liczba liści dla głębokości 1, 2, 3...
+    private static final Object[][] SUITE = {
+            { FenNotation.INITIAL_POSITION, "Pozycja początkowa",
+                    new long[] { 7, 49, 302, 1469, 7482, 37986, 190146, 929978, 4571311 } },
+            { "W:W18,19,21,22,23,25,26,27,29,30,31:B2,3,5,6,7,9,10,11,13,14", "Środek gry",
+                    new long[] { 6, 11, 27, 76, 284, 1104, 4413, 18295, 76712 } },
+            { "W:WK18,K22,K29,K31:BK2,K4,K11,9,10", "Damki w końcówce",
+                    new long[] { 2, 2, 13, 85, 984, 8719, 88657, 781999 } },
+            { "W:WK30,27:B22,14,15,23,7,10", "Wielokrotne bicie damką",
+                    new long[] { 6, 30, 211, 832, 4720, 18528, 110188 } },
+            { "B:W10,11,18,19,K30:BK1,K4,6", "Wielokrotne bicie czarnymi damkami",
+                    new long[] { 8, 62, 200, 1195, 9424, 59618, 553789 } },
+            { "W:W26,29,31:B22,23,14,7,8,12", "Promocja w trakcie bicia",
+                    new long[] { 2, 12, 42, 112, 454, 1577, 6566, 25038, 118855 } },
+    };
+
+    private final GameLogic game;
+    private final int[][] buffers = new int[MAX_DEPTH][Move.MAX_MOVES];
+
+    public Perft(GameLogic game) {
+        this.game = game;
+    }
+
+    /**
+     * Liczy liście drzewa ruchów do podanej głębokości.
+     */
+    public long perft(int depth) {
+        int[] moves = buffers[depth];
+        int count = game.generateFullMoves(moves);
+        if (depth <= 1) {
+            return depth == 1 ? count : 1;
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            game.makeMove(moves[i]);
+            nodes += perft(depth - 1);
+            game.unmakeMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Wypisuje liczbę liści osobno dla każdego ruchu z pozycji początkowej.
+     *
+     * @return Łączna liczba liści
+     */
+    public long divide(int depth) {
+        int[] moves = new int[Move.MAX_MOVES];
+        int count = game.generateFullMoves(moves);
+
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            game.makeMove(moves[i]);
+            long nodes = perft(depth - 1);
+            game.unmakeMove();
+
+            total += nodes;
+            System.out.println(Move.toString(moves[i]) + " (zbite: " + Move.captureCount(moves[i]) + ")\t" + nodes);
+        }
+        System.out.println("Ruchy: " + count + ", liście: " + total);
+        return total;
+    }
+
+    public static void main(String[] args) {
+        ApplicationConfig.configureLogging(false);
+
+        if (args.length == 0 || args[0].equals("suite")) {
+            int maxDepth = args.length > 1 ? Integer.parseInt(args[1]) : Integer.MAX_VALUE;
+            System.exit(runSuite(maxDepth) ? 0 : 1);
+        }
+
+        if (args.length < 2 || !(args[0].equals("perft") || args[0].equals("divide"))) {
+            printUsage();
+            return;
+        }
+
+        int depth = Integer.parseInt(args[1]);
+        if (depth < 1 || depth >= MAX_DEPTH) {
+            System.err.println("Głębokość musi być z zakresu 1-" + (MAX_DEPTH - 1));
+            return;
+        }
+
+        GameLogic game = new GameLogic();
+        if (args.length > 2 && !FenNotation.load(game, args[2])) {
+            System.err.println("Niepoprawna pozycja: " + args[2]);
+            return;
+        }
+
+        Perft perft = new Perft(game);
+        long start = System.nanoTime();
+        long nodes = args[0].equals("divide") ? perft.divide(depth) : perft.perft(depth);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println("perft(" + depth + ") = " + nodes + formatSpeed(nodes, elapsed));
+    }
+
+    private static boolean runSuite(int maxDepth) {
+        GameLogic game = new GameLogic();
+        Perft perft = new Perft(game);
+        boolean passed = true;
+        long totalNodes = 0;
+        long totalTime = 0;
+
+        for (Object[] entry : SUITE) {
+            String fen = (String) entry[0];
+            long[] expected = (long[]) entry[2];
+            System.out.println(entry[1] + " [" + fen + "]");
+
+            for (int depth = 1; depth <= expected.length && depth <= maxDepth; depth++) {
+                if (!FenNotation.load(game, fen)) {
+                    return false;
+                }
+
+                long start = System.nanoTime();
+                long nodes = perft.perft(depth);
+                long elapsed = System.nanoTime() - start;
+                totalNodes += nodes;
+                totalTime += elapsed;
+
+                boolean ok = nodes == expected[depth - 1];
+                passed &= ok;
+                System.out.println("  perft(" + depth + ") = " + nodes + (ok ? " OK" : " BŁĄD, oczekiwano "
+                        + expected[depth - 1]) + formatSpeed(nodes, elapsed));
+            }
+        }
+
+        System.out.println((passed ? "Wszystkie wyniki poprawne" : "Wykryto błędy generatora ruchów")
+                + formatSpeed(totalNodes, totalTime));
+        return passed;
+    }
+
+    private static String formatSpeed(long nodes, long elapsedNanos) {
+        double seconds = Math.max(elapsedNanos, 1) / 1_000_000_000.0;
+        return String.format(" (%.3f s, %.0f węzłów/s)", seconds, nodes / seconds);
+    }
+
+    private static void printUsage() {
+        System.out.println("Użycie:");
+        System.out.println("  java -cp out Perft [suite [maksymalna głębokość]]");
+        System.out.println("  java -cp out Perft perft <głębokość> [FEN]");
+        System.out.println("  java -cp out Perft divide <głębokość> [FEN]");
+    }
+}
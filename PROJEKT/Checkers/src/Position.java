@@ -0,0 +1,132 @@
+/**
+ * Niezmienna migawka pozycji publikowana przez {@link GameLogic} po każdym
+ * ruchu. Przechowuje tylko maski bitowe i kilka liczb, więc jej utworzenie
+ * jest tanie, a wątki renderowania, sieci i analizy mogą ją czytać bez
+ * blokad i bez kopiowania planszy.
+ */
+public final class Position {
+
+    private final int white;
+    private final int black;
+    private final int kings;
+    private final boolean isWhiteTurn;
+    private final int capturingSquare;
+    private final int captureSources;
+    private final int lastMove;
+    private final long hash;
+
+    public Position(int white, int black, int kings, boolean isWhiteTurn, int capturingSquare, int captureSources,
+            int lastMove, long hash) {
+        this.white = white;
+        this.black = black;
+        this.kings = kings;
+        this.isWhiteTurn = isWhiteTurn;
+        this.capturingSquare = capturingSquare;
+        this.captureSources = captureSources;
+        this.lastMove = lastMove;
+        this.hash = hash;
+    }
+
+    public int getWhite() {
+        return white;
+    }
+
+    public int getBlack() {
+        return black;
+    }
+
+    public int getKings() {
+        return kings;
+    }
+
+    public int getPieces(boolean isWhite) {
+        return isWhite ? white : black;
+    }
+
+    public int getOccupied() {
+        return white | black;
+    }
+
+    public boolean isWhiteTurn() {
+        return isWhiteTurn;
+    }
+
+    public boolean isContinuedCapture() {
+        return capturingSquare >= 0;
+    }
+
+    /**
+     * @return Pole bierki kontynuującej bicie lub -1
+     */
+    public int getCapturingSquare() {
+        return capturingSquare;
+    }
+
+    /**
+     * Zwraca maskę bierek strony na posunięciu, które muszą wykonać bicie.
+     */
+    public int getCaptureSources() {
+        return captureSources;
+    }
+
+    /**
+     * @return Ostatni wykonany ruch lub {@link Move#NONE}
+     */
+    public int getLastMove() {
+        return lastMove;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    public int getPieceCount(boolean isWhite) {
+        return Integer.bitCount(getPieces(isWhite));
+    }
+
+    public boolean isOccupied(int row, int col) {
+        return (getOccupied() & bit(row, col)) != 0;
+    }
+
+    public boolean isWhite(int row, int col) {
+        return (white & bit(row, col)) != 0;
+    }
+
+    public boolean isKing(int row, int col) {
+        return (kings & bit(row, col)) != 0;
+    }
+
+    /**
+     * Tworzy nową, modyfikowalną kopię pozycji w postaci {@link Bitboard}.
+     */
+    public Bitboard toBitboard() {
+        return new Bitboard(white, black, kings);
+    }
+
+    private static int bit(int row, int col) {
+        int square = Bitboard.square(row, col);
+        return square < 0 ? 0 : 1 << square;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Position position)) {
+            return false;
+        }
+        return white == position.white && black == position.black && kings == position.kings
+                && isWhiteTurn == position.isWhiteTurn && capturingSquare == position.capturingSquare;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
+    }
+
+    @Override
+    public String toString() {
+        return FenNotation.format(this);
+    }
+}
@@ -0,0 +1,19 @@
+import java.util.Random;
+
+/**
+ * Strategia wybierająca losowy ruch spośród wszystkich dozwolonych.
+ */
+public class RandomMoveStrategy implements MoveStrategy {
+
+    private final Random random = new Random();
+    private final int[] moveBuffer = new int[Move.MAX_MOVES];
+
+    @Override
+    public int selectMove(GameLogic game) {
+        int count = game.generateFullMoves(moveBuffer);
+        if (count == 0) {
+            return Move.NONE;
+        }
+        return moveBuffer[random.nextInt(count)];
+    }
+}
@@ -0,0 +1,75 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Frequency;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+import jdk.jfr.StackTrace;
+
+/**
+ * Zdarzenie JFR wyboru ruchu przez {@link ComputerPlayer}. Czas trwania
+ * zdarzenia to czas namysłu, a pola powtarzają {@link SearchStatistics}.
+ * Zapis włącza się np. opcją
+ * {@code -XX:StartFlightRecording:filename=silnik.jfr}.
+ */
+@Name("checkers.Search")
+@Label("Wybór ruchu")
+@Category({ "Warcaby", "Silnik" })
+@Description("Statystyki wyboru ruchu przez silnik komputera")
+@StackTrace(false)
+class SearchEvent extends Event {
+
+    @Label("Silnik")
+    String engine;
+
+    @Label("Ruch")
+    String move;
+
+    @Label("Namysł w czasie ruchu przeciwnika")
+    boolean ponder;
+
+    @Label("Głębokość")
+    int depth;
+
+    @Label("Ocena")
+    int score;
+
+    @Label("Węzły")
+    long nodes;
+
+    @Label("Rozgrywki MCTS")
+    long playouts;
+
+    @Label("Węzły na sekundę")
+    @Frequency
+    long nodesPerSecond;
+
+    @Label("Wątki")
+    int threads;
+
+    @Label("Odczyty tablicy transpozycji")
+    long tableProbes;
+
+    @Label("Trafienia w tablicy transpozycji")
+    @Percentage
+    double tableHitRate;
+
+    @Label("Odczyty bazy końcówek")
+    long endgameHits;
+
+    void set(SearchStatistics statistics, boolean ponder) {
+        engine = statistics.getEngine();
+        move = Move.toString(statistics.getMove());
+        this.ponder = ponder;
+        depth = statistics.getDepth();
+        score = statistics.getScore();
+        nodes = statistics.getNodes();
+        playouts = statistics.getPlayouts();
+        nodesPerSecond = statistics.getNodesPerSecond();
+        threads = statistics.getThreads();
+        tableProbes = statistics.getTableProbes();
+        tableHitRate = statistics.getTableHitRate();
+        endgameHits = statistics.getEndgameHits();
+    }
+}
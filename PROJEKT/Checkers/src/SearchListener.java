@@ -0,0 +1,16 @@
+/**
+ * Odbiorca informacji o postępie przeszukiwania. Metody są wywoływane w
+ * wątku, w którym działa przeszukiwanie.
+ */
+public interface SearchListener {
+
+    /**
+     * Wywoływana po każdej zakończonej iteracji pogłębiania.
+     *
+     * @param depth    Głębokość zakończonej iteracji
+     * @param score    Ocena z punktu widzenia strony na posunięciu
+     * @param nodes    Liczba węzłów od początku przeszukiwania
+     * @param bestMove Najlepszy ruch po tej iteracji
+     */
+    void onIterationCompleted(int depth, int score, long nodes, int bestMove);
+}
@@ -0,0 +1,118 @@
+/**
+ * Statystyki jednego wyboru ruchu przez strategię: wybrany ruch, głębokość,
+ * liczba węzłów i rozgrywek, czas oraz odczyty tablicy transpozycji i bazy
+ * końcówek. Wartości niedotyczące danej strategii są zerowe.
+ */
+public final class SearchStatistics {
+
+    private final String engine;
+    private final int move;
+    private final int depth;
+    private final int score;
+    private final long nodes;
+    private final long playouts;
+    private final long elapsedNanos;
+    private final int threads;
+    private final long tableProbes;
+    private final long tableHits;
+    private final long endgameHits;
+
+    /**
+     * @param engine       Nazwa strategii
+     * @param move         Wybrany ruch
+     * @param depth        Głębokość ostatniej zakończonej iteracji lub
+     *                     długość głównej ścieżki drzewa MCTS
+     * @param score        Ocena z punktu widzenia strony na posunięciu
+     * @param nodes        Liczba odwiedzonych węzłów we wszystkich wątkach
+     * @param playouts     Liczba rozgrywek MCTS
+     * @param elapsedNanos Czas wyboru ruchu
+     * @param threads      Liczba wątków przeszukiwania
+     * @param tableProbes  Liczba odczytów tablicy transpozycji
+     * @param tableHits    Liczba trafień w tablicy transpozycji
+     * @param endgameHits  Liczba węzłów ocenionych przez bazę końcówek
+     */
+    public SearchStatistics(String engine, int move, int depth, int score, long nodes, long playouts,
+            long elapsedNanos, int threads, long tableProbes, long tableHits, long endgameHits) {
+        this.engine = engine;
+        this.move = move;
+        this.depth = depth;
+        this.score = score;
+        this.nodes = nodes;
+        this.playouts = playouts;
+        this.elapsedNanos = elapsedNanos;
+        this.threads = threads;
+        this.tableProbes = tableProbes;
+        this.tableHits = tableHits;
+        this.endgameHits = endgameHits;
+    }
+
+    public String getEngine() {
+        return engine;
+    }
+
+    public int getMove() {
+        return move;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getTableProbes() {
+        return tableProbes;
+    }
+
+    public long getTableHits() {
+        return tableHits;
+    }
+
+    public long getEndgameHits() {
+        return endgameHits;
+    }
+
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+
+    /**
+     * @return Liczba węzłów na sekundę w przeliczeniu na jeden wątek
+     */
+    public long getNodesPerSecondPerThread() {
+        return getNodesPerSecond() / Math.max(threads, 1);
+    }
+
+    /**
+     * @return Udział trafień w odczytach tablicy transpozycji (0-1)
+     */
+    public double getTableHitRate() {
+        return tableProbes == 0 ? 0 : (double) tableHits / tableProbes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: ruch %s, głębokość %d, ocena %d, węzły %d, rozgrywki %d, %d węzłów/s, czas %.1f ms,"
+                + " wątki %d, trafienia tablicy %.1f%%, odczyty bazy końcówek %d", engine, Move.toString(move),
+                depth, score, nodes, playouts, getNodesPerSecond(), elapsedNanos / 1_000_000.0, threads,
+                getTableHitRate() * 100, endgameHits);
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Przydział czasu namysłu na ruch przy grze na czas. Czas docelowy to
+ * pozostały czas podzielony przez szacowaną liczbę ruchów do końca partii
+ * plus większość przyrostu za ruch. Liczba ruchów do końca zależy od fazy
+ * gry, czyli od liczby bierek na planszy. Czas maksymalny, do którego
+ * przeszukiwanie może wydłużyć namysł w pozycji niestabilnej, nie
+ * przekracza ustalonej części pozostałego czasu, więc zegar nigdy nie
+ * spada do zera.
+ * <p>
+ * Od pozostałego czasu odejmowany jest narzut na ruch (opóźnienie i
+ * animacja wykonania ruchu, opóźnienia sieci).
+ */
+public final class TimeManager {
+
+    // Szacowana liczba ruchów do końca partii: 1.5 na bierkę, ale nie mniej niż 10
+    private static final int MIN_MOVES_TO_GO = 10;
+    private static final int MOVES_TO_GO_PER_PIECE_NUMERATOR = 3;
+    private static final int MOVES_TO_GO_PER_PIECE_DENOMINATOR = 2;
+
+    // Czas maksymalny: najwyżej 3 razy czas docelowy i 1/3 dostępnego czasu
+    private static final int MAX_TARGET_MULTIPLE = 3;
+    private static final int MAX_AVAILABLE_DIVISOR = 3;
+
+    private static final long MIN_MOVE_MILLIS = 10;
+
+    private final long gameTimeMillis;
+    private final long incrementMillis;
+    private final long moveOverheadMillis;
+
+    /**
+     * @param gameTimeMillis     Czas na partię
+     * @param incrementMillis    Przyrost czasu po każdym ruchu
+     * @param moveOverheadMillis Narzut na ruch poza namysłem
+     */
+    public TimeManager(long gameTimeMillis, long incrementMillis, long moveOverheadMillis) {
+        this.gameTimeMillis = gameTimeMillis;
+        this.incrementMillis = incrementMillis;
+        this.moveOverheadMillis = moveOverheadMillis;
+    }
+
+    /**
+     * Zwraca czas pozostały na zegarze strony.
+     *
+     * @param usedMillis  Czas zużyty od początku partii
+     * @param movesPlayed Liczba ruchów wykonanych przez stronę
+     */
+    public long getRemainingMillis(long usedMillis, int movesPlayed) {
+        return gameTimeMillis + movesPlayed * incrementMillis - usedMillis;
+    }
+
+    /**
+     * Zwraca czas, po którym przeszukiwanie w stabilnej pozycji nie zaczyna
+     * kolejnej iteracji.
+     *
+     * @param remainingMillis Czas pozostały na zegarze
+     * @param pieces          Liczba bierek na planszy
+     */
+    public long getTargetMillis(long remainingMillis, int pieces) {
+        long target = available(remainingMillis) / movesToGo(pieces) + incrementMillis * 3 / 4;
+        return Math.max(MIN_MOVE_MILLIS, Math.min(target, getMaxMillis(remainingMillis, pieces)));
+    }
+
+    /**
+     * Zwraca czas, po którym przeszukiwanie jest przerywane niezależnie od
+     * stabilności pozycji.
+     */
+    public long getMaxMillis(long remainingMillis, int pieces) {
+        long available = available(remainingMillis);
+        long max = Math.min((available / movesToGo(pieces) + incrementMillis) * MAX_TARGET_MULTIPLE,
+                available / MAX_AVAILABLE_DIVISOR);
+        return Math.max(MIN_MOVE_MILLIS, max);
+    }
+
+    private static int movesToGo(int pieces) {
+        return Math.max(MIN_MOVES_TO_GO, pieces * MOVES_TO_GO_PER_PIECE_NUMERATOR / MOVES_TO_GO_PER_PIECE_DENOMINATOR);
+    }
+
+    // Czas do wykorzystania na namysł po odjęciu narzutu na ruch
+    private long available(long remainingMillis) {
+        return Math.max(0, remainingMillis - moveOverheadMillis);
+    }
+}
@@ -0,0 +1,457 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Narzędzie rozgrywające partie silnika z silnikiem bez interfejsu
+ * graficznego, równolegle na wszystkich rdzeniach. Silnik A i silnik B
+ * mogą się różnić strategią, liczbą wątków, rozmiarem tablicy
+ * transpozycji, przeszukiwaniem bić w liściach i wagami oceny; służy do
+ * sprawdzania, czy zmiana silnika lub jego ustawień go wzmacnia.
+ * <p>
+ * Silnik opisuje napis "strategia,klucz=wartość,...", gdzie strategia to
+ * {@code ab} (alfa-beta, przy {@code threads > 1} Lazy SMP) lub
+ * {@code mcts}. Klucze: {@code threads} (wątki przeszukiwania, domyślnie
+ * 1), {@code hash} (tablica transpozycji w MB), {@code tree} (drzewo MCTS w
+ * MB), {@code qs} (przeszukiwanie bić w liściach, 0 lub 1), {@code ext}
+ * (przedłużanie ruchów wymuszonych, 0 lub 1), {@code eval} (plik wag
+ * {@link Evaluation}). Na przykład
+ * {@code ab,threads=4,hash=64,qs=0} lub {@code mcts,threads=4}.
+ * <p>
+ * Partie są rozgrywane parami: obie partie pary zaczynają się tym samym
+ * losowym otwarciem, a silniki zamieniają się kolorami. Otwarcie zależy
+ * tylko od ziarna i numeru pary, więc przy tym samym ziarnie silniki grają
+ * te same otwarcia; dalszy przebieg zależy od czasu namysłu. Partia kończy
+ * się remisem po trzykrotnym powtórzeniu pozycji albo po
+ * {@link #MAX_PLIES} półruchach.
+ * <p>
+ * Na koniec wypisuje wygrane, remisy i przegrane silnika A, różnicę Elo z
+ * 95% przedziałem ufności, średnią liczbę węzłów na sekundę i percentyle
+ * czasu ruchu dla obu silników.
+ * <p>
+ * Użycie: {@code java Tournament [liczba partii] [czas ruchu ms] [wątki] [ziarno] [silnik A] [silnik B]}
+ */
+public class Tournament {
+
+    private static final int DEFAULT_GAMES = 200;
+    private static final int DEFAULT_MOVE_TIME_MILLIS = 50;
+    private static final long DEFAULT_SEED = 1;
+
+    private static final int RANDOM_PLIES = 4;
+    private static final int MAX_PLIES = 300;
+    private static final int HASH_SIZE_MB = 16;
+    private static final int TREE_SIZE_MB = 64;
+    private static final int PROGRESS_INTERVAL = 100;
+
+    // Kwantyl rozkładu normalnego dla 95% przedziału ufności
+    private static final double CONFIDENCE_Z = 1.96;
+
+    private final int games;
+    private final long moveTimeMillis;
+    private final int threads;
+    private final long seed;
+    private final EngineConfig[] engines;
+
+    private final AtomicInteger nextPair = new AtomicInteger();
+    private final AtomicInteger finishedGames = new AtomicInteger();
+    private final Statistics total = new Statistics();
+
+    public Tournament(int games, long moveTimeMillis, int threads, long seed, EngineConfig first,
+            EngineConfig second) {
+        this.games = games;
+        this.moveTimeMillis = moveTimeMillis;
+        this.threads = threads;
+        this.seed = seed;
+        this.engines = new EngineConfig[] { first, second };
+    }
+
+    public static void main(String[] args) {
+        ApplicationConfig.configureLogging(false);
+
+        int games = DEFAULT_GAMES;
+        long moveTime = DEFAULT_MOVE_TIME_MILLIS;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = DEFAULT_SEED;
+        try {
+            if (args.length > 0) {
+                games = Integer.parseInt(args[0]);
+            }
+            if (args.length > 1) {
+                moveTime = Long.parseLong(args[1]);
+            }
+            if (args.length > 2) {
+                threads = Integer.parseInt(args[2]);
+            }
+            if (args.length > 3) {
+                seed = Long.parseLong(args[3]);
+            }
+        } catch (NumberFormatException e) {
+            printUsage();
+            return;
+        }
+        if (games < 2 || moveTime < 1 || threads < 1) {
+            printUsage();
+            return;
+        }
+
+        // Błędy wczytywania wag są zgłaszane, więc logowanie jest na chwilę włączane
+        Logger.setLoggingEnabled(true);
+        EngineConfig first = EngineConfig.parse(args.length > 4 ? args[4] : "ab");
+        EngineConfig second = EngineConfig.parse(args.length > 5 ? args[5] : "ab");
+        Logger.setLoggingEnabled(false);
+        if (first == null || second == null) {
+            printUsage();
+            return;
+        }
+
+        System.out.println("Partie: " + games + ", czas ruchu: " + moveTime + " ms, wątki: " + threads
+                + ", ziarno: " + seed);
+        System.out.println("Silnik A: " + first + ", silnik B: " + second);
+        Tournament tournament = new Tournament(games, moveTime, threads, seed, first, second);
+        long start = System.nanoTime();
+        tournament.run();
+        tournament.printReport((System.nanoTime() - start) / 1_000_000_000.0);
+    }
+
+    /**
+     * Rozgrywa wszystkie partie, rozdzielając pary partii między wątki.
+     */
+    public void run() {
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(this::work, "Turniej-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.err.println("Przerwano oczekiwanie na zakończenie turnieju");
+                return;
+            }
+        }
+    }
+
+    private void work() {
+        Statistics statistics = new Statistics();
+        MoveStrategy[] strategies = new MoveStrategy[2];
+        TranspositionTable[] tables = new TranspositionTable[2];
+        GameLogic[] engineGames = new GameLogic[2];
+        for (int engine = 0; engine < 2; engine++) {
+            tables[engine] = engines[engine].createTable();
+            strategies[engine] = engines[engine].createStrategy(moveTimeMillis, tables[engine]);
+            engineGames[engine] = new GameLogic();
+        }
+        GameLogic game = new GameLogic();
+        int[] opening = new int[RANDOM_PLIES];
+        int[] moves = new int[Move.MAX_MOVES];
+
+        int pairs = (games + 1) / 2;
+        for (int pair = nextPair.getAndIncrement(); pair < pairs; pair = nextPair.getAndIncrement()) {
+            Random random = new Random(seed * 31 + pair);
+            int openingPlies = 0;
+            game.resetGame();
+            for (; openingPlies < RANDOM_PLIES; openingPlies++) {
+                int count = game.generateFullMoves(moves);
+                if (count == 0) {
+                    break;
+                }
+                opening[openingPlies] = moves[random.nextInt(count)];
+                game.makeMove(opening[openingPlies]);
+            }
+
+            for (int round = 0; round < 2 && pair * 2 + round < games; round++) {
+                // W pierwszej partii pary silnik A gra białymi, w drugiej czarnymi
+                boolean firstIsWhite = round == 0;
+                int result = play(game, opening, openingPlies, strategies, tables, engineGames, firstIsWhite,
+                        moves, statistics);
+                statistics.addResult(result);
+
+                int finished = finishedGames.incrementAndGet();
+                if (finished % PROGRESS_INTERVAL == 0) {
+                    System.out.println("Rozegrano " + finished + " z " + games + " partii");
+                }
+            }
+        }
+
+        for (MoveStrategy strategy : strategies) {
+            if (strategy instanceof ParallelSearch parallel) {
+                parallel.shutdown();
+            }
+        }
+        synchronized (total) {
+            total.add(statistics);
+        }
+    }
+
+    /**
+     * Rozgrywa jedną partię od podanego otwarcia.
+     *
+     * @return 1 dla wygranej silnika A, 0 dla remisu, -1 dla przegranej
+     */
+    private int play(GameLogic game, int[] opening, int openingPlies, MoveStrategy[] strategies,
+            TranspositionTable[] tables, GameLogic[] engineGames, boolean firstIsWhite, int[] moves,
+            Statistics statistics) {
+        game.resetGame();
+        for (int i = 0; i < openingPlies; i++) {
+            game.makeMove(opening[i]);
+        }
+        for (int engine = 0; engine < 2; engine++) {
+            if (tables[engine] != null) {
+                tables[engine].clear();
+            }
+            engineGames[engine].copyFrom(game);
+            engineGames[engine].setEvaluation(engines[engine].evaluation);
+        }
+
+        for (int ply = openingPlies; ply < MAX_PLIES; ply++) {
+            if (game.generateFullMoves(moves) == 0) {
+                // Strona bez ruchów przegrywa
+                return game.isWhiteTurn() == firstIsWhite ? -1 : 1;
+            }
+            if (game.getRepetitionCount() >= 2) {
+                return 0;
+            }
+
+            int engine = game.isWhiteTurn() == firstIsWhite ? 0 : 1;
+            long start = System.nanoTime();
+            int move = strategies[engine].selectMove(engineGames[engine]);
+            long elapsedNanos = System.nanoTime() - start;
+            SearchStatistics search = strategies[engine].getLastStatistics();
+            statistics.addMove(engine, elapsedNanos, search == null ? 0 : search.getNodes(),
+                    search == null ? 0 : search.getPlayouts());
+
+            game.makeMove(move);
+            engineGames[0].makeMove(move);
+            engineGames[1].makeMove(move);
+        }
+        return 0;
+    }
+
+    private void printReport(double elapsedSeconds) {
+        int played = total.wins + total.draws + total.losses;
+        double score = (total.wins + total.draws / 2.0) / played;
+
+        // Odchylenie standardowe średniego wyniku partii
+        double variance = (total.wins * square(1 - score) + total.draws * square(0.5 - score)
+                + total.losses * square(score)) / played;
+        double error = CONFIDENCE_Z * Math.sqrt(variance / played);
+
+        System.out.println();
+        System.out.println(String.format("Silnik A: wygrane %d, remisy %d, przegrane %d (wynik %.1f%%)",
+                total.wins, total.draws, total.losses, score * 100));
+        System.out.println(String.format("Różnica Elo: %s, 95%% przedział: [%s, %s]", formatElo(elo(score)),
+                formatElo(elo(score - error)), formatElo(elo(score + error))));
+        for (int engine = 0; engine < 2; engine++) {
+            System.out.println(total.describe(engine, engine == 0 ? "Silnik A" : "Silnik B"));
+        }
+        System.out.println(String.format("Czas turnieju: %.1f s", elapsedSeconds));
+    }
+
+    // Różnica Elo odpowiadająca oczekiwanemu wynikowi
+    private static double elo(double score) {
+        if (score <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        if (score >= 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    private static String formatElo(double elo) {
+        return Double.isInfinite(elo) ? (elo > 0 ? "+∞" : "-∞") : String.format("%+.1f", elo);
+    }
+
+    private static double square(double value) {
+        return value * value;
+    }
+
+    private static void printUsage() {
+        System.out.println("Użycie:");
+        System.out.println("  java -cp out Tournament [liczba partii] [czas ruchu ms] [wątki] [ziarno]"
+                + " [silnik A] [silnik B]");
+        System.out.println("Silnik: ab|mcts[,threads=N][,hash=MB][,tree=MB][,qs=0|1][,ext=0|1][,eval=plik wag]");
+    }
+
+    /**
+     * Ustawienia jednego silnika turnieju. Każdy wątek turnieju tworzy z nich
+     * własną strategię i tablicę transpozycji.
+     */
+    static final class EngineConfig {
+
+        private final String description;
+        private boolean mcts;
+        private int threads = 1;
+        private int hashMb = HASH_SIZE_MB;
+        private int treeMb = TREE_SIZE_MB;
+        private boolean quiescence = true;
+        private boolean extension = true;
+        private Evaluation evaluation = Evaluation.DEFAULT;
+
+        private EngineConfig(String description) {
+            this.description = description;
+        }
+
+        /**
+         * Odczytuje ustawienia z napisu "strategia,klucz=wartość,...".
+         *
+         * @return Ustawienia lub null, jeśli napis jest niepoprawny
+         */
+        static EngineConfig parse(String spec) {
+            String[] parts = spec.split(",");
+            EngineConfig config = new EngineConfig(spec);
+            switch (parts[0]) {
+                case "ab" -> config.mcts = false;
+                case "mcts" -> config.mcts = true;
+                default -> {
+                    System.out.println("Nieznana strategia: " + parts[0]);
+                    return null;
+                }
+            }
+
+            for (int i = 1; i < parts.length; i++) {
+                String[] option = parts[i].split("=", 2);
+                if (option.length != 2) {
+                    System.out.println("Niepoprawne ustawienie silnika: " + parts[i]);
+                    return null;
+                }
+                try {
+                    switch (option[0]) {
+                        case "threads" -> config.threads = Integer.parseInt(option[1]);
+                        case "hash" -> config.hashMb = Integer.parseInt(option[1]);
+                        case "tree" -> config.treeMb = Integer.parseInt(option[1]);
+                        case "qs" -> config.quiescence = parseSwitch(option[1]);
+                        case "ext" -> config.extension = parseSwitch(option[1]);
+                        case "eval" -> config.evaluation = Evaluation.load(Path.of(option[1]));
+                        default -> {
+                            System.out.println("Nieznane ustawienie silnika: " + option[0]);
+                            return null;
+                        }
+                    }
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Niepoprawna wartość ustawienia silnika: " + parts[i]);
+                    return null;
+                }
+            }
+            if (config.threads < 1 || config.hashMb < 1 || config.treeMb < 1) {
+                System.out.println("Niepoprawne ustawienia silnika: " + spec);
+                return null;
+            }
+            return config;
+        }
+
+        private static boolean parseSwitch(String value) {
+            return switch (value) {
+                case "1" -> true;
+                case "0" -> false;
+                default -> throw new IllegalArgumentException(value);
+            };
+        }
+
+        // Tablica transpozycji czyszczona przed każdą partią; MCTS jej nie używa
+        TranspositionTable createTable() {
+            return mcts ? null : new TranspositionTable(hashMb);
+        }
+
+        MoveStrategy createStrategy(long moveTimeMillis, TranspositionTable table) {
+            if (mcts) {
+                return new MctsSearch(moveTimeMillis, threads, treeMb);
+            }
+            if (threads == 1) {
+                AlphaBetaSearch search = new AlphaBetaSearch(moveTimeMillis, table);
+                search.setQuiescence(quiescence);
+                search.setForcedMoveExtension(extension);
+                return search;
+            }
+            ParallelSearch search = new ParallelSearch(moveTimeMillis, threads, table);
+            search.setQuiescence(quiescence);
+            search.setForcedMoveExtension(extension);
+            return search;
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    /**
+     * Wyniki i pomiary zbierane osobno przez każdy wątek i łączone na końcu.
+     */
+    private static class Statistics {
+
+        private int wins;
+        private int draws;
+        private int losses;
+        private final long[] nodes = new long[2];
+        private final long[] playouts = new long[2];
+        private final long[] nanos = new long[2];
+        private final long[][] moveTimes = { new long[64], new long[64] };
+        private final int[] moveCounts = new int[2];
+
+        void addResult(int result) {
+            if (result > 0) {
+                wins++;
+            } else if (result < 0) {
+                losses++;
+            } else {
+                draws++;
+            }
+        }
+
+        void addMove(int engine, long elapsedNanos, long searchedNodes, long searchedPlayouts) {
+            nodes[engine] += searchedNodes;
+            playouts[engine] += searchedPlayouts;
+            nanos[engine] += elapsedNanos;
+            addMoveTime(engine, elapsedNanos);
+        }
+
+        private void addMoveTime(int engine, long elapsedNanos) {
+            if (moveCounts[engine] == moveTimes[engine].length) {
+                moveTimes[engine] = Arrays.copyOf(moveTimes[engine], moveCounts[engine] * 2);
+            }
+            moveTimes[engine][moveCounts[engine]++] = elapsedNanos;
+        }
+
+        void add(Statistics other) {
+            wins += other.wins;
+            draws += other.draws;
+            losses += other.losses;
+            for (int engine = 0; engine < 2; engine++) {
+                nodes[engine] += other.nodes[engine];
+                playouts[engine] += other.playouts[engine];
+                nanos[engine] += other.nanos[engine];
+                for (int i = 0; i < other.moveCounts[engine]; i++) {
+                    addMoveTime(engine, other.moveTimes[engine][i]);
+                }
+            }
+        }
+
+        String describe(int engine, String name) {
+            int count = moveCounts[engine];
+            if (count == 0) {
+                return name + ": brak ruchów";
+            }
+            long[] sorted = Arrays.copyOf(moveTimes[engine], count);
+            Arrays.sort(sorted);
+            double seconds = Math.max(nanos[engine], 1) / 1_000_000_000.0;
+            String speed = playouts[engine] > 0 ? String.format("%.0f rozgrywek/s", playouts[engine] / seconds)
+                    : String.format("%.0f węzłów/s", nodes[engine] / seconds);
+            return String.format("%s: ruchy %d, %s, czas ruchu p50 %.1f ms, p90 %.1f ms,"
+                    + " p99 %.1f ms, maks. %.1f ms", name, count, speed,
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                    sorted[count - 1] / 1_000_000.0);
+        }
+
+        private static double percentile(long[] sorted, double fraction) {
+            int index = (int) Math.ceil(fraction * sorted.length) - 1;
+            return sorted[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+}
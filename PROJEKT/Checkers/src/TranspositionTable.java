@@ -0,0 +1,246 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tablica transpozycji o stałym rozmiarze, przechowywana w dwóch tablicach
+ * {@code long[]}: pełny hasz pozycji i spakowany wpis. Wpis zawiera ruch,
+ * ocenę, głębokość, rodzaj oceny i numer przeszukiwania. Tablica może być
+ * używana przez wiele przeszukiwań w jednej grze i w kolejnych grach.
+ * <p>
+ * Zastępowanie preferuje głębsze wyniki. Nowy wpis nadpisuje istniejący,
+ * gdy dotyczy tej samej pozycji, jest co najmniej tak samo głęboki albo
+ * istniejący wpis pochodzi z wcześniejszego przeszukiwania.
+ * <p>
+ * Tablica może być współdzielona przez wiele wątków bez blokad. Zamiast
+ * samego hasza zapisywany jest hasz XOR wpis, więc wpis rozerwany przez
+ * równoległy zapis nie przejdzie weryfikacji i zostanie potraktowany jak
+ * brak wpisu. Liczniki używają {@link LongAdder}, żeby wątki nie
+ * rywalizowały o jedną linię pamięci podręcznej.
+ */
+public class TranspositionTable {
+
+    private static final Logger logger = new Logger(TranspositionTable.class);
+
+    // Rodzaj oceny we wpisie; 0 oznacza brak wpisu
+    public static final int EXACT = 1;
+    public static final int LOWER_BOUND = 2;
+    public static final int UPPER_BOUND = 3;
+
+    private static final int ENTRY_BYTES = 2 * Long.BYTES;
+
+    // Układ wpisu: bity 0-28 ruch, 29-50 ocena, 51-57 głębokość, 58-59 rodzaj oceny, 60-63 numer przeszukiwania
+    private static final int MOVE_BITS = 29;
+    private static final int SCORE_SHIFT = 29;
+    private static final int SCORE_BITS = 22;
+    private static final int SCORE_OFFSET = 1 << (SCORE_BITS - 1);
+    private static final int DEPTH_SHIFT = 51;
+    private static final int DEPTH_MASK = 0x7F;
+    private static final int BOUND_SHIFT = 58;
+    private static final int GENERATION_SHIFT = 60;
+    private static final int GENERATION_MASK = 0xF;
+
+    // Oceny wygranej są zapisywane względem węzła, a nie korzenia
+    private static final int WIN_THRESHOLD = AlphaBetaSearch.DECISIVE_SCORE;
+
+    // Hasz pozycji XOR wpis
+    private final long[] keys;
+    private final long[] entries;
+    private final int mask;
+    private volatile int generation;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder overwrites = new LongAdder();
+
+    /**
+     * Tworzy tablicę o rozmiarze nie większym niż podana liczba megabajtów.
+     * Liczba wpisów jest zaokrąglana w dół do potęgi dwójki.
+     *
+     * @param sizeMb Rozmiar tablicy w megabajtach
+     */
+    public TranspositionTable(int sizeMb) {
+        if (sizeMb < 1) {
+            logger.warning("Niepoprawny rozmiar tablicy transpozycji: " + sizeMb + " MB, używam 1 MB");
+            sizeMb = 1;
+        }
+
+        long capacity = Long.highestOneBit((long) sizeMb * 1024 * 1024 / ENTRY_BYTES);
+        capacity = Math.min(capacity, 1 << 30);
+        keys = new long[(int) capacity];
+        entries = new long[(int) capacity];
+        mask = (int) capacity - 1;
+        logger.info("Tablica transpozycji: " + capacity + " wpisów (" + capacity * ENTRY_BYTES / (1024 * 1024) + " MB)");
+    }
+
+    /**
+     * Usuwa wszystkie wpisy i zeruje liczniki.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(entries, 0);
+        generation = 0;
+        resetStatistics();
+    }
+
+    /**
+     * Rozpoczyna nowe przeszukiwanie: wpisy z poprzednich przeszukiwań stają
+     * się pierwsze do zastąpienia, a liczniki są zerowane.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & GENERATION_MASK;
+        resetStatistics();
+    }
+
+    /**
+     * Szuka wpisu dla pozycji o podanym haszu.
+     *
+     * @return Spakowany wpis lub 0, jeśli pozycji nie ma w tablicy
+     */
+    public long probe(long hash) {
+        int index = (int) hash & mask;
+        probes.increment();
+
+        long entry = entries[index];
+        long key = keys[index];
+        if (entry == 0) {
+            return 0;
+        }
+        if ((key ^ entry) != hash) {
+            collisions.increment();
+            return 0;
+        }
+        hits.increment();
+        return entry;
+    }
+
+    /**
+     * Zapisuje wynik przeszukania pozycji.
+     *
+     * @param hash  Hasz pozycji
+     * @param move  Najlepszy ruch lub {@link Move#NONE}
+     * @param score Ocena z punktu widzenia strony na posunięciu
+     * @param depth Głębokość przeszukania
+     * @param bound Rodzaj oceny: {@link #EXACT}, {@link #LOWER_BOUND} lub {@link #UPPER_BOUND}
+     * @param ply   Odległość węzła od korzenia, potrzebna do zapisu ocen wygranej
+     */
+    public void store(long hash, int move, int score, int depth, int bound, int ply) {
+        int index = (int) hash & mask;
+        long existing = entries[index];
+        int generation = this.generation;
+
+        if (existing != 0) {
+            boolean samePosition = (keys[index] ^ existing) == hash;
+            boolean stale = generation(existing) != generation;
+            if (!samePosition && !stale && depth < depth(existing)) {
+                return;
+            }
+            if (samePosition && move == Move.NONE) {
+                move = move(existing);
+            }
+            if (!samePosition) {
+                overwrites.increment();
+            }
+        }
+
+        if (score >= WIN_THRESHOLD) {
+            score += ply;
+        } else if (score <= -WIN_THRESHOLD) {
+            score -= ply;
+        }
+
+        long entry = (move & ((1L << MOVE_BITS) - 1))
+                | ((long) (score + SCORE_OFFSET) << SCORE_SHIFT)
+                | ((long) Math.min(depth, DEPTH_MASK) << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) generation << GENERATION_SHIFT);
+        entries[index] = entry;
+        keys[index] = hash ^ entry;
+        stores.increment();
+    }
+
+    public static int move(long entry) {
+        return (int) (entry & ((1L << MOVE_BITS) - 1));
+    }
+
+    /**
+     * Odczytuje ocenę wpisu przeliczoną względem korzenia przeszukiwania.
+     */
+    public static int score(long entry, int ply) {
+        int score = (int) ((entry >>> SCORE_SHIFT) & ((1L << SCORE_BITS) - 1)) - SCORE_OFFSET;
+        if (score >= WIN_THRESHOLD) {
+            return score - ply;
+        }
+        if (score <= -WIN_THRESHOLD) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & DEPTH_MASK;
+    }
+
+    public static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 3;
+    }
+
+    private static int generation(long entry) {
+        return (int) (entry >>> GENERATION_SHIFT) & GENERATION_MASK;
+    }
+
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return Liczba odczytów, w których miejsce zajmowała inna pozycja
+     */
+    public long getCollisions() {
+        return collisions.sum();
+    }
+
+    public long getStores() {
+        return stores.sum();
+    }
+
+    /**
+     * @return Liczba zapisów, które zastąpiły wpis innej pozycji
+     */
+    public long getOverwrites() {
+        return overwrites.sum();
+    }
+
+    /**
+     * Szacuje zapełnienie tablicy w promilach na podstawie pierwszych 1000
+     * wpisów z bieżącego przeszukiwania.
+     */
+    public int getFillPermille() {
+        int sample = Math.min(1000, entries.length);
+        int generation = this.generation;
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            if (entries[i] != 0 && generation(entries[i]) == generation) {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
+    private void resetStatistics() {
+        probes.reset();
+        hits.reset();
+        collisions.reset();
+        stores.reset();
+        overwrites.reset();
+    }
+}
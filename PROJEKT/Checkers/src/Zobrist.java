@@ -0,0 +1,64 @@
+/**
+ * Klucze Zobrista do 64-bitowego haszowania pozycji. Klucze są generowane
+ * deterministycznie ze stałego ziarna (SplitMix64), więc klient, serwer i
+ * zapisane archiwa partii zawsze liczą ten sam hasz dla tej samej pozycji.
+ */
+public final class Zobrist {
+
+    private static final long SEED = 0x2545F4914F6CDD1DL;
+
+    // Klucze bierek indeksowane [(kolor * 2 + damka) * 32 + pole]
+    private static final long[] PIECE = new long[4 * Bitboard.SQUARES];
+
+    // Klucze pola, z którego trwa wielokrotne bicie
+    private static final long[] CONTINUATION = new long[Bitboard.SQUARES];
+
+    public static final long BLACK_TO_MOVE;
+
+    static {
+        long state = SEED;
+        for (int i = 0; i < PIECE.length; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            PIECE[i] = mix(state);
+        }
+        for (int i = 0; i < CONTINUATION.length; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            CONTINUATION[i] = mix(state);
+        }
+        state += 0x9E3779B97F4A7C15L;
+        BLACK_TO_MOVE = mix(state);
+    }
+
+    private Zobrist() {
+    }
+
+    public static long piece(int square, boolean isWhite, boolean isKing) {
+        return PIECE[((isWhite ? 0 : 2) + (isKing ? 1 : 0)) * Bitboard.SQUARES + square];
+    }
+
+    public static long continuation(int square) {
+        return CONTINUATION[square];
+    }
+
+    /**
+     * Liczy hasz pozycji od zera. Służy do inicjalizacji i weryfikacji hasza
+     * aktualizowanego przyrostowo.
+     */
+    public static long hash(Bitboard bitboard, boolean isWhiteTurn, int capturingSquare) {
+        long hash = isWhiteTurn ? 0 : BLACK_TO_MOVE;
+        for (int pieces = bitboard.getOccupied(); pieces != 0; pieces &= pieces - 1) {
+            int square = Integer.numberOfTrailingZeros(pieces);
+            hash ^= piece(square, bitboard.isWhite(square), bitboard.isKing(square));
+        }
+        if (capturingSquare >= 0) {
+            hash ^= CONTINUATION[capturingSquare];
+        }
+        return hash;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}